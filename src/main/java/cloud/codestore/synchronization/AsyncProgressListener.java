@@ -0,0 +1,332 @@
+package cloud.codestore.synchronization;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ProgressListener} which publishes all events into a bounded, lock-free ring buffer.
+ * The events are delivered to the actual {@link ProgressListener} by a dispatcher task,
+ * in the order in which they were published.
+ * <br/><br/>
+ * The dispatcher task is submitted to the given {@link Executor} whenever there are new events and no task is pending.
+ * It delivers all available events and ends, so it does not occupy a thread of the executor for the whole run.
+ * Without an executor, the task runs on a dispatcher thread which is owned by this listener and ends with it.
+ * <br/><br/>
+ * {@link #close()} does not rely on a pending task to ever run, because the synchronization may itself run on
+ * the given executor or the executor may be busy with other work. Unless another thread is currently delivering,
+ * the closing thread delivers the remaining events itself.
+ * <br/><br/>
+ * The threads which synchronize the items do not call the actual listener themselves as long as there is space
+ * in the ring buffer. If it is full and the dispatcher task has not started yet, the publishing thread delivers
+ * the pending events itself, so a busy executor can not block the synchronization.
+ * Since the events are never delivered by two threads at the same time, the actual listener does not need to be
+ * thread safe.
+ */
+class AsyncProgressListener implements ProgressListener
+{
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final ProgressListener progressListener;
+    private final Executor executor;
+    private final ExecutorService ownExecutorService;
+    private final Event[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    
+    private volatile long head;
+    private volatile boolean running = true;
+    
+    /**
+     * Creates the ring buffer. The events are delivered on a dispatcher thread of this listener.
+     *
+     * @param progressListener the {@link ProgressListener} which should receive the events.
+     * @param bufferSize the minimum number of events the ring buffer can hold. It is rounded up to a power of two.
+     */
+    AsyncProgressListener(ProgressListener progressListener, int bufferSize)
+    {
+        this(progressListener, bufferSize, null);
+    }
+    
+    /**
+     * Creates the ring buffer.
+     *
+     * @param progressListener the {@link ProgressListener} which should receive the events.
+     * @param bufferSize the minimum number of events the ring buffer can hold. It is rounded up to a power of two.
+     * @param executor the {@link Executor} which runs the dispatcher task
+     *                 or {@code null} to use a dispatcher thread of this listener.
+     */
+    AsyncProgressListener(ProgressListener progressListener, int bufferSize, Executor executor)
+    {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.progressListener = progressListener;
+        this.ownExecutorService = executor == null ? createDispatcherExecutorService() : null;
+        this.executor = executor == null ? ownExecutorService : executor;
+        this.events = new Event[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for(int i = 0; i < capacity; i++)
+        {
+            events[i] = new Event();
+            sequences.set(i, i);
+        }
+    }
+    
+    @Override
+    public void numberOfItems(int numberOfItems)
+    {
+        publish(EventType.NUMBER_OF_ITEMS, null, null, numberOfItems);
+    }
+    
+    @Override
+    public void synchronizationStarted(String itemId)
+    {
+        publish(EventType.STARTED, itemId, null, 0);
+    }
+    
+    @Override
+    public void synchronizationFinished(String itemId)
+    {
+        publish(EventType.FINISHED, itemId, null, 0);
+    }
+    
+    @Override
+    public void synchronizationFailed(String itemId, Throwable exception)
+    {
+        publish(EventType.FAILED, itemId, exception, 0);
+    }
+    
+    /**
+     * Waits until all published events have been delivered. Events which are published afterwards are discarded.
+     * The calling thread only waits while another thread is delivering events. Otherwise, it takes over
+     * the delivery of the remaining events, even if a dispatcher task is still queued on the executor.
+     */
+    void close()
+    {
+        running = false;
+        while(tail.get() != head)
+        {
+            if(dispatching.get())
+            {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            else
+            {
+                scheduled.set(false);
+                dispatchAvailable();
+                Thread.onSpinWait();
+            }
+        }
+        
+        if(ownExecutorService != null)
+            ownExecutorService.shutdown();
+    }
+    
+    /**
+     * Throws the first exception which was thrown by the actual {@link ProgressListener}, if any.
+     * Exceptions of the listener do not stop the delivery of the following events.
+     */
+    void rethrowFailure()
+    {
+        RuntimeException exception = failure.get();
+        if(exception != null)
+            throw exception;
+    }
+    
+    /**
+     * Claims the next free slot of the ring buffer, writes the event into it and marks it as readable.
+     * If the ring buffer is full, the calling thread waits until the dispatcher has freed a slot.
+     * Events which are published after the listener was closed are discarded.
+     */
+    private void publish(EventType type, String itemId, Throwable exception, int numberOfItems)
+    {
+        if(!running)
+            return;
+        
+        long position = tail.get();
+        while(true)
+        {
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if(sequence == position)
+            {
+                if(tail.compareAndSet(position, position + 1))
+                    break;
+                
+                position = tail.get();
+            }
+            else if(sequence < position)
+            {
+                if(!running)
+                    return;
+                
+                awaitFreeSlot();
+                position = tail.get();
+            }
+            else
+            {
+                position = tail.get();
+            }
+        }
+        
+        int index = (int) position & mask;
+        events[index].set(type, itemId, exception, numberOfItems);
+        sequences.set(index, position + 1);
+        if(!dispatching.get() && scheduled.compareAndSet(false, true))
+            schedule();
+    }
+    
+    private static ExecutorService createDispatcherExecutorService()
+    {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private void schedule()
+    {
+        try
+        {
+            executor.execute(this::dispatch);
+        }
+        catch(RejectedExecutionException exception)
+        {
+            scheduled.set(false);
+        }
+    }
+    
+    private void awaitFreeSlot()
+    {
+        if(dispatching.get())
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        else
+            dispatchAvailable();
+    }
+    
+    /**
+     * The dispatcher task. If {@link #close()} has taken over the delivery in the meantime, it finds no events.
+     */
+    private void dispatch()
+    {
+        do
+        {
+            dispatchAvailable();
+            scheduled.set(false);
+        }
+        while(hasAvailableEvent() && scheduled.compareAndSet(false, true));
+    }
+    
+    /**
+     * Delivers all readable events, unless another thread is currently delivering them.
+     * The flag is checked again after it has been released, so that no event is left behind.
+     */
+    private void dispatchAvailable()
+    {
+        while(dispatching.compareAndSet(false, true))
+        {
+            try
+            {
+                dispatchReadableEvents();
+            }
+            finally
+            {
+                dispatching.set(false);
+            }
+            
+            if(!hasAvailableEvent())
+                return;
+        }
+    }
+    
+    private boolean hasAvailableEvent()
+    {
+        long position = head;
+        return sequences.get((int) position & mask) == position + 1;
+    }
+    
+    private void dispatchReadableEvents()
+    {
+        long position = head;
+        int index = (int) position & mask;
+        while(sequences.get(index) == position + 1)
+        {
+            Event event = events[index];
+            try
+            {
+                event.deliverTo(progressListener);
+            }
+            catch(RuntimeException exception)
+            {
+                failure.compareAndSet(null, exception);
+            }
+            
+            event.clear();
+            head = position + 1;
+            sequences.set(index, position + events.length);
+            position++;
+            index = (int) position & mask;
+        }
+    }
+    
+    private enum EventType
+    {
+        NUMBER_OF_ITEMS, STARTED, FINISHED, FAILED
+    }
+    
+    /**
+     * A reusable slot of the ring buffer.
+     * Its fields are published to the dispatcher thread by the volatile write of the corresponding sequence.
+     */
+    private static class Event
+    {
+        private EventType type;
+        private String itemId;
+        private Throwable exception;
+        private int numberOfItems;
+        
+        void set(EventType type, String itemId, Throwable exception, int numberOfItems)
+        {
+            this.type = type;
+            this.itemId = itemId;
+            this.exception = exception;
+            this.numberOfItems = numberOfItems;
+        }
+        
+        void clear()
+        {
+            set(null, null, null, 0);
+        }
+        
+        void deliverTo(ProgressListener progressListener)
+        {
+            switch(type)
+            {
+                case NUMBER_OF_ITEMS:
+                    progressListener.numberOfItems(numberOfItems);
+                    break;
+                case STARTED:
+                    progressListener.synchronizationStarted(itemId);
+                    break;
+                case FINISHED:
+                    progressListener.synchronizationFinished(itemId);
+                    break;
+                case FAILED:
+                    progressListener.synchronizationFailed(itemId, exception);
+                    break;
+            }
+        }
+    }
+}
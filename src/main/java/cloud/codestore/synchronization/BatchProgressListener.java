@@ -0,0 +1,19 @@
+package cloud.codestore.synchronization;
+
+/**
+ * A {@link BatchProgressListener} receives aggregated progress updates instead of a call for every single item.
+ * It is called whenever a certain number of items has been processed or a certain amount of time has passed,
+ * and once after the synchronization has been finished.
+ * <br/><br/>
+ * The listener is never called by several threads at the same time.
+ */
+@FunctionalInterface
+public interface BatchProgressListener
+{
+    /**
+     * Called with the progress since the last call.
+     *
+     * @param batch the aggregated progress.
+     */
+    void progress(ProgressBatch batch);
+}
@@ -0,0 +1,158 @@
+package cloud.codestore.synchronization;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ProgressListener} which aggregates the progress events and passes them to a {@link BatchProgressListener}
+ * every {@code batchSize} items or every {@code interval} milliseconds, whatever comes first.
+ * <br/><br/>
+ * The interval is checked whenever an item is started or processed, so a batch is also delivered in time
+ * if the processing of single items takes longer than the interval.
+ * <br/><br/>
+ * The calls to the {@link BatchProgressListener} are serialized by a lock. If a thread wants to deliver a batch
+ * while another thread is currently delivering one, it does not wait but leaves its events for the next batch.
+ */
+class BatchingProgressListener implements ProgressListener
+{
+    private final BatchProgressListener batchProgressListener;
+    private final int batchSize;
+    private final long intervalNanos;
+    
+    private final Lock lock = new ReentrantLock();
+    private final AtomicInteger pendingFinishedItems = new AtomicInteger();
+    private final AtomicInteger pendingFailedItems = new AtomicInteger();
+    private final AtomicInteger pendingItems = new AtomicInteger();
+    private final Queue<Map.Entry<String, Throwable>> pendingFailures = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextDeliveryTime = new AtomicLong();
+    
+    private volatile int numberOfItems;
+    private long totalFinishedItems;
+    private long totalFailedItems;
+    
+    /**
+     * @param batchProgressListener the {@link BatchProgressListener} which receives the aggregated progress.
+     * @param batchSize the number of processed items after which a batch is delivered.
+     * @param interval the number of milliseconds after which a batch is delivered.
+     */
+    BatchingProgressListener(BatchProgressListener batchProgressListener, int batchSize, long interval)
+    {
+        this.batchProgressListener = batchProgressListener;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+    }
+    
+    @Override
+    public void numberOfItems(int numberOfItems)
+    {
+        lock.lock();
+        try
+        {
+            this.numberOfItems = numberOfItems;
+            totalFinishedItems = 0;
+            totalFailedItems = 0;
+            nextDeliveryTime.set(System.nanoTime() + intervalNanos);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void synchronizationStarted(String itemId)
+    {
+        if(pendingItems.get() > 0 && intervalElapsed())
+            tryDeliver();
+    }
+    
+    @Override
+    public void synchronizationFinished(String itemId)
+    {
+        pendingFinishedItems.incrementAndGet();
+        itemProcessed();
+    }
+    
+    @Override
+    public void synchronizationFailed(String itemId, Throwable exception)
+    {
+        pendingFailures.add(new AbstractMap.SimpleImmutableEntry<>(itemId, exception));
+        pendingFailedItems.incrementAndGet();
+        itemProcessed();
+    }
+    
+    /**
+     * Delivers the remaining events. It is called as soon as the synchronization has been finished.
+     */
+    void flush()
+    {
+        lock.lock();
+        try
+        {
+            deliver();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+    
+    private void itemProcessed()
+    {
+        boolean batchComplete = pendingItems.incrementAndGet() >= batchSize;
+        if(batchComplete || intervalElapsed())
+            tryDeliver();
+    }
+    
+    private boolean intervalElapsed()
+    {
+        return System.nanoTime() - nextDeliveryTime.get() >= 0;
+    }
+    
+    private void tryDeliver()
+    {
+        if(lock.tryLock())
+        {
+            try
+            {
+                deliver();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private void deliver()
+    {
+        pendingItems.set(0);
+        nextDeliveryTime.set(System.nanoTime() + intervalNanos);
+        
+        int finishedItems = pendingFinishedItems.getAndSet(0);
+        int failedItems = pendingFailedItems.getAndSet(0);
+        Map<String, Throwable> failures = new HashMap<>();
+        for(int i = 0; i < failedItems; i++)
+        {
+            Map.Entry<String, Throwable> failure = pendingFailures.poll();
+            failures.put(failure.getKey(), failure.getValue());
+        }
+        
+        totalFinishedItems += finishedItems;
+        totalFailedItems += failedItems;
+        batchProgressListener.progress(new ProgressBatch(numberOfItems,
+                                                         finishedItems,
+                                                         failedItems,
+                                                         totalFinishedItems,
+                                                         totalFailedItems,
+                                                         failures));
+    }
+}
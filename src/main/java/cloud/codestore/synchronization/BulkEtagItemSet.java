@@ -0,0 +1,28 @@
+package cloud.codestore.synchronization;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An {@link ItemSet} which is able to read the etags of many items with a single request.
+ * <br/><br/>
+ * If the etag prefetch of a {@link Synchronization} is enabled, the etags are read in chunks just before
+ * the items of a chunk are processed, instead of calling {@link #getEtag(String)} for every single item.
+ * This is useful for remote sets whose etags are provided by a paged listing.
+ *
+ * @param <I> the type of an item.
+ */
+public interface BulkEtagItemSet<I> extends ItemSet<I>
+{
+    /**
+     * Reads the etags of the items with the given IDs from this set.
+     * IDs of items which are not contained in this set are omitted from the result.
+     *
+     * @param itemIds the IDs of the items.
+     *
+     * @return the IDs of the contained items mapped to their etags.
+     *
+     * @throws Exception if the etags could not be read.
+     */
+    Map<String, String> getEtags(Collection<String> itemIds) throws Exception;
+}
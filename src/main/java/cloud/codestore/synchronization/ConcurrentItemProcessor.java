@@ -1,24 +1,53 @@
 package cloud.codestore.synchronization;
 
-import java.util.Set;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 /**
  * An item processor which processes the items concurrently.
+ * If a priority is set, the items are put into a {@link PriorityBlockingQueue}
+ * and every thread takes the item with the highest priority as soon as it is ready.
+ * <br/><br/>
+ * If an external {@link Executor} is passed, the items are processed by its threads
+ * and at most {@code threadCount} items are processed at the same time.
+ * The executor is not shut down, so it can be reused by subsequent synchronizations.
+ * Otherwise, a new thread pool is created for every call of {@link #process(Collection)}.
+ * <br/><br/>
+ * Every running item holds a permit of the semaphore.
+ * The processing is complete as soon as all permits could be acquired again,
+ * so {@link #process(Collection)} only returns after every submitted item was finished or the timeout has elapsed.
  */
 class ConcurrentItemProcessor extends ItemProcessor
 {
-    private ExecutorService executorService;
+    private final Executor externalExecutor;
+    private Executor executor;
     private Semaphore semaphore;
     private int threadCount;
+    private long deadline;
     
     ConcurrentItemProcessor(Synchronization<?> synchronization, ProgressListener progressListener, int threadCount)
+    {
+        this(synchronization, progressListener, threadCount, null);
+    }
+    
+    ConcurrentItemProcessor(
+            Synchronization<?> synchronization,
+            ProgressListener progressListener,
+            int threadCount,
+            Executor executor
+    )
     {
         super(synchronization, progressListener);
         this.threadCount = threadCount;
+        this.externalExecutor = executor;
     }
     
     @Override
@@ -34,45 +63,140 @@ class ConcurrentItemProcessor extends ItemProcessor
     }
     
     @Override
-    void process(Set<String> itemIds)
+    void process(Collection<String> itemIds)
     {
-        executorService = Executors.newFixedThreadPool(threadCount);
+        ExecutorService ownExecutorService = externalExecutor == null ? Executors.newFixedThreadPool(threadCount) : null;
+        executor = externalExecutor == null ? ownExecutorService : externalExecutor;
         semaphore = new Semaphore(threadCount);
-    
+        Duration timeout = getTimeout();
+        deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        
         try
         {
-            for(String itemId : itemIds)
-            {
-                semaphore.acquire();
-                if(isCanceled())
-                    break;
+            if(getPriority() == null)
+                processUnordered(itemIds);
+            else
+                processPrioritized(itemIds);
             
-                process(itemId);
-            }
-        
-            executorService.shutdown();
-            executorService.awaitTermination(1, TimeUnit.MINUTES);
+            if(!isTimedOut())
+                acquire(threadCount);
         }
         catch(InterruptedException e)
         {
             e.printStackTrace();
             Thread.currentThread().interrupt();
-            executorService.shutdownNow();
+            if(ownExecutorService != null)
+                ownExecutorService.shutdownNow();
+        }
+        finally
+        {
+            if(ownExecutorService != null)
+            {
+                if(isTimedOut())
+                    ownExecutorService.shutdownNow();
+                else
+                    ownExecutorService.shutdown();
+            }
         }
     }
     
-    @Override
-    void process(String itemId)
+    private void processUnordered(Collection<String> itemIds) throws InterruptedException
     {
-        executorService.submit(() -> {
-            try
+        for(String itemId : itemIds)
+        {
+            if(!acquire(1))
+                break;
+            
+            if(isCanceled())
             {
-                super.process(itemId);
+                semaphore.release();
+                break;
             }
-            finally
+            
+            process(itemId);
+        }
+    }
+    
+    private void processPrioritized(Collection<String> itemIds) throws InterruptedException
+    {
+        Queue<String> queue = new PriorityBlockingQueue<>(Math.max(1, itemIds.size()), getPriority());
+        queue.addAll(itemIds);
+        
+        int numberOfItems = queue.size();
+        for(int i = 0; i < numberOfItems; i++)
+        {
+            if(!acquire(1))
+                break;
+            
+            if(isCanceled())
             {
                 semaphore.release();
+                break;
             }
+            
+            processNext(queue);
+        }
+    }
+    
+    /**
+     * Acquires the given number of permits. If a timeout is set, waits at most until the deadline.
+     *
+     * @return {@code true} if the permits were acquired or {@code false} if the deadline has passed.
+     */
+    private boolean acquire(int permits) throws InterruptedException
+    {
+        if(deadline == 0)
+        {
+            semaphore.acquire(permits);
+            return true;
+        }
+        
+        long remainingTime = deadline - System.nanoTime();
+        if(semaphore.tryAcquire(permits, remainingTime, TimeUnit.NANOSECONDS))
+            return true;
+        
+        timedOut();
+        return false;
+    }
+    
+    @Override
+    void process(String itemId)
+    {
+        submit(() -> super.process(itemId));
+    }
+    
+    private void processNext(Queue<String> queue)
+    {
+        submit(() -> {
+            String itemId = queue.poll();
+            if(itemId != null)
+                super.process(itemId);
         });
     }
+    
+    /**
+     * Executes the given task and releases its permit as soon as it is finished.
+     * If the executor rejects the task, the permit is released immediately.
+     */
+    private void submit(Runnable task)
+    {
+        try
+        {
+            executor.execute(() -> {
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    semaphore.release();
+                }
+            });
+        }
+        catch(RejectedExecutionException exception)
+        {
+            semaphore.release();
+            throw exception;
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package cloud.codestore.synchronization;
+
+import java.util.Objects;
+
+/**
+ * Represents a single conflict (an item was updated on both sides).<br>
+ * A {@link Conflict} is immutable and does not depend on the thread which detected it.
+ * It can therefore be passed to other threads, for example to show a dialog or to resolve it asynchronously.
+ * <br/><br/>
+ * It provides several convenient methods to solve the conflict:<br>
+ * <ul>
+ *     <li>{@link Conflict#applyItemA()} : replace the item on B with the item on A</li>
+ *     <li>{@link Conflict#applyItemB()} : replace the item on A with the item on B</li>
+ *     <li>{@link Conflict#applyItem(Object, String)} : replace the item on both sides</li>
+ * </ul>
+ *
+ * @param <I> the type of an item.
+ */
+public final class Conflict<I>
+{
+    private final String itemId;
+    private final String etagA;
+    private final String etagB;
+    private final ItemSet<I> itemSetA;
+    private final ItemSet<I> itemSetB;
+    private final Status status;
+    
+    Conflict(String itemId, String etagA, String etagB, ItemSet<I> itemSetA, ItemSet<I> itemSetB, Status status)
+    {
+        this.itemId = itemId;
+        this.etagA = etagA;
+        this.etagB = etagB;
+        this.itemSetA = itemSetA;
+        this.itemSetB = itemSetB;
+        this.status = status;
+    }
+    
+    /**
+     * @return the ID of the affected item.
+     */
+    public String getItemId()
+    {
+        return itemId;
+    }
+    
+    /**
+     * @return the etag of the item on side A.
+     */
+    public String getEtagA()
+    {
+        return etagA;
+    }
+    
+    /**
+     * @return the etag of the item on side B.
+     */
+    public String getEtagB()
+    {
+        return etagB;
+    }
+    
+    /**
+     * @return the item from {@link ItemSet} A.
+     *
+     * @throws Exception if the item could not be loaded.
+     */
+    public I getItemA() throws Exception
+    {
+        return itemSetA.getItem(itemId);
+    }
+    
+    /**
+     * @return the item from {@link ItemSet} B.
+     *
+     * @throws Exception if the item could not be loaded.
+     */
+    public I getItemB() throws Exception
+    {
+        return itemSetB.getItem(itemId);
+    }
+    
+    /**
+     * Reads the item from A and updates it on B.
+     *
+     * @throws Exception if the item could not be loaded from A or if it could not be updated in B.
+     */
+    public void applyItemA() throws Exception
+    {
+        I item = getItemA();
+        itemSetB.updateItem(itemId, item);
+        status.put(itemId, etagA);
+    }
+    
+    /**
+     * Reads the item from B and updates it on A.
+     *
+     * @throws Exception if the item could not be loaded from B or if it could not be updated in A.
+     */
+    public void applyItemB() throws Exception
+    {
+        I item = getItemB();
+        itemSetA.updateItem(itemId, item);
+        status.put(itemId, etagB);
+    }
+    
+    /**
+     * Replaces the item on both sides, A and B with the given item.
+     * This can be used if the items from both sets were merged in some way.
+     *
+     * @param item the item which should be stored on both sides.
+     * @param etag the etag of the item.
+     *
+     * @throws Exception if the item could not be loaded or updated.
+     */
+    public void applyItem(I item, String etag) throws Exception
+    {
+        Objects.requireNonNull(item, "The item must not be null");
+        Objects.requireNonNull(etag, "The etag must not be null");
+        
+        itemSetA.updateItem(itemId, item);
+        itemSetB.updateItem(itemId, item);
+        status.put(itemId, etag);
+    }
+}
@@ -0,0 +1,30 @@
+package cloud.codestore.synchronization;
+
+/**
+ * The {@link ConflictHandler} is called whenever there is a conflict (an item was updated on both sets).
+ * In contrast to the {@link ConflictResolver}, all information about the conflict is passed as an immutable
+ * {@link Conflict} object. A {@link ConflictHandler} therefore has no thread-bound state and can pass the
+ * {@link Conflict} to other threads, for example to resolve it asynchronously.
+ *
+ * @param <I> the type of an item.
+ */
+@FunctionalInterface
+public interface ConflictHandler<I>
+{
+    /**
+     * Resolves the conflict.
+     * <br/><br/>
+     * Note that the synchronization continues as soon as this method returns.
+     * If the conflict is resolved by another thread, make sure this method blocks until it has been resolved,
+     * or use a {@link DeferredConflictResolver} to resolve the conflicts after the synchronization.
+     * <br/><br/>
+     * If the conflict could not be resolved automatically, or if the user canceled the process,
+     * this method should throw an {@link UnresolvedConflictException}.
+     *
+     * @param conflict the {@link Conflict} to resolve.
+     *
+     * @throws UnresolvedConflictException if the conflict could not be resolved.
+     * @throws Exception if there was an error.
+     */
+    void resolve(Conflict<I> conflict) throws Exception;
+}
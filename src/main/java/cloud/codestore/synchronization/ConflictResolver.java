@@ -1,7 +1,5 @@
 package cloud.codestore.synchronization;
 
-import java.util.Objects;
-
 /**
  * The {@link ConflictResolver} is called whenever there is a conflict (an item was updated on both sets).<br>
  * It provides several convenient methods to solve the conflict:<br>
@@ -11,18 +9,40 @@ import java.util.Objects;
  *     <li>{@link ConflictResolver#applyItem(I, String)} : replace the item on both sides</li>
  * </ul>
  *
+ * The context of the conflict is bound to the thread which calls {@link #resolve(String, String, String)}.
+ * If the conflict should be resolved by another thread, use a {@link ConflictHandler} instead.
+ *
  * @param <I> the type of an item.
  */
 public abstract class ConflictResolver<I>
 {
-    private static final ThreadLocal<String> itemId = new ThreadLocal<>();
-    private static final ThreadLocal<String> etagA = new ThreadLocal<>();
-    private static final ThreadLocal<String> etagB = new ThreadLocal<>();
+    private final ThreadLocal<Conflict<I>> context = new ThreadLocal<>();
     
     private ItemSet<I> itemSetA;
     private ItemSet<I> itemSetB;
     private Status status;
     
+    /**
+     * @param conflictResolver a {@link ConflictResolver}.
+     * @param <I> the type of an item.
+     *
+     * @return a {@link ConflictHandler} which resolves every {@link Conflict} with the given {@link ConflictResolver}.
+     */
+    static <I> ConflictHandler<I> asConflictHandler(ConflictResolver<I> conflictResolver)
+    {
+        return conflict -> {
+            conflictResolver.setContext(conflict);
+            try
+            {
+                conflictResolver.resolve(conflict.getItemId(), conflict.getEtagA(), conflict.getEtagB());
+            }
+            finally
+            {
+                conflictResolver.clearContext();
+            }
+        };
+    }
+    
     void setItemSets(ItemSet<I> itemSetA, ItemSet<I> itemSetB, Status status)
     {
         this.itemSetA = itemSetA;
@@ -30,11 +50,34 @@ public abstract class ConflictResolver<I>
         this.status = status;
     }
     
+    ItemSet<I> getItemSetA()
+    {
+        return itemSetA;
+    }
+    
+    ItemSet<I> getItemSetB()
+    {
+        return itemSetB;
+    }
+    
+    Status getStatus()
+    {
+        return status;
+    }
+    
     void setContext(String itemId, String etagA, String etagB)
     {
-        ConflictResolver.itemId.set(itemId);
-        ConflictResolver.etagA.set(etagA);
-        ConflictResolver.etagB.set(etagB);
+        setContext(new Conflict<>(itemId, etagA, etagB, itemSetA, itemSetB, status));
+    }
+    
+    void setContext(Conflict<I> conflict)
+    {
+        context.set(conflict);
+    }
+    
+    void clearContext()
+    {
+        context.remove();
     }
     
     /**
@@ -44,7 +87,7 @@ public abstract class ConflictResolver<I>
      */
     public I getItemA() throws Exception
     {
-        return itemSetA.getItem(itemId.get());
+        return context.get().getItemA();
     }
     
     /**
@@ -54,7 +97,7 @@ public abstract class ConflictResolver<I>
      */
     public I getItemB() throws Exception
     {
-        return itemSetB.getItem(itemId.get());
+        return context.get().getItemB();
     }
     
     /**
@@ -64,9 +107,7 @@ public abstract class ConflictResolver<I>
      */
     public void applyItemA() throws Exception
     {
-        I item = getItemA();
-        itemSetB.updateItem(itemId.get(), item);
-        status.put(itemId.get(), etagA.get());
+        context.get().applyItemA();
     }
     
     /**
@@ -76,9 +117,7 @@ public abstract class ConflictResolver<I>
      */
     public void applyItemB() throws Exception
     {
-        I item = getItemB();
-        itemSetA.updateItem(itemId.get(), item);
-        status.put(itemId.get(), etagB.get());
+        context.get().applyItemB();
     }
     
     /**
@@ -92,12 +131,7 @@ public abstract class ConflictResolver<I>
      */
     public void applyItem(I item, String etag) throws Exception
     {
-        Objects.requireNonNull(item, "The item must not be null");
-        Objects.requireNonNull(etag, "The etag must not be null");
-        
-        itemSetA.updateItem(itemId.get(), item);
-        itemSetB.updateItem(itemId.get(), item);
-        status.put(itemId.get(), etag);
+        context.get().applyItem(item, etag);
     }
     
     /**
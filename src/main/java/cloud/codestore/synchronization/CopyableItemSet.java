@@ -0,0 +1,24 @@
+package cloud.codestore.synchronization;
+
+/**
+ * An {@link ItemSet} which is able to copy an item it already contains to a new ID.
+ * <br/><br/>
+ * If the deduplication of a {@link MutableItemSynchronization} is enabled and this set already contains an item
+ * with the same etag as an item which should be created or updated, the existing item is copied locally
+ * instead of transferring the item from the opposite side.
+ *
+ * @param <I> the type of an item.
+ */
+public interface CopyableItemSet<I> extends ItemSet<I>
+{
+    /**
+     * Copies the content of an existing item to the given ID.
+     * If an item with the new ID already exists, it is replaced.
+     *
+     * @param existingId the ID of the item which should be copied.
+     * @param newId the ID of the copy.
+     *
+     * @throws Exception if the item could not be copied.
+     */
+    void copyFrom(String existingId, String newId) throws Exception;
+}
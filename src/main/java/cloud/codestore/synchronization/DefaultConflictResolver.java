@@ -6,7 +6,7 @@ package cloud.codestore.synchronization;
 class DefaultConflictResolver<I> extends ConflictResolver<I>
 {
     @Override
-    void setContext(String itemId, String etagA, String etagB) {}
+    void setContext(Conflict<I> conflict) {}
 
     @Override
     public void resolve(String itemId, String etagA, String etagB) throws Exception
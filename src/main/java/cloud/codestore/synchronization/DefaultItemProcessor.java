@@ -1,9 +1,11 @@
 package cloud.codestore.synchronization;
 
-import java.util.Set;
+import java.time.Duration;
+import java.util.Collection;
 
 /**
  * An item processor which processes the items synchronously one after the other.
+ * If a timeout is set, no further item is started after the timeout has elapsed.
  */
 class DefaultItemProcessor extends ItemProcessor
 {
@@ -13,13 +15,21 @@ class DefaultItemProcessor extends ItemProcessor
     }
     
     @Override
-    void process(Set<String> itemIds)
+    void process(Collection<String> itemIds)
     {
-        for(String itemId : itemIds)
+        Duration timeout = getTimeout();
+        long deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        for(String itemId : prioritize(itemIds))
         {
             process(itemId);
             if(isCanceled())
                 return;
+            
+            if(deadline != 0 && System.nanoTime() - deadline >= 0)
+            {
+                timedOut();
+                return;
+            }
         }
     }
 }
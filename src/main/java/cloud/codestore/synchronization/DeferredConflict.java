@@ -0,0 +1,71 @@
+package cloud.codestore.synchronization;
+
+import java.util.Objects;
+
+/**
+ * A conflict which was recorded by a {@link DeferredConflictResolver} to be resolved later.
+ */
+public final class DeferredConflict
+{
+    private final String itemId;
+    private final String etagA;
+    private final String etagB;
+    
+    /**
+     * @param itemId the ID of the affected item.
+     * @param etagA the etag of the item on side A at the time the conflict was detected.
+     * @param etagB the etag of the item on side B at the time the conflict was detected.
+     */
+    public DeferredConflict(String itemId, String etagA, String etagB)
+    {
+        this.itemId = Objects.requireNonNull(itemId, "The itemId must not be null");
+        this.etagA = etagA;
+        this.etagB = etagB;
+    }
+    
+    /**
+     * @return the ID of the affected item.
+     */
+    public String getItemId()
+    {
+        return itemId;
+    }
+    
+    /**
+     * @return the etag of the item on side A at the time the conflict was detected.
+     */
+    public String getEtagA()
+    {
+        return etagA;
+    }
+    
+    /**
+     * @return the etag of the item on side B at the time the conflict was detected.
+     */
+    public String getEtagB()
+    {
+        return etagB;
+    }
+    
+    @Override
+    public boolean equals(Object object)
+    {
+        if(!(object instanceof DeferredConflict))
+            return false;
+        
+        DeferredConflict other = (DeferredConflict) object;
+        return itemId.equals(other.itemId) && Objects.equals(etagA, other.etagA) && Objects.equals(etagB, other.etagB);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(itemId, etagA, etagB);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "Conflict of item " + itemId + " (etag A: " + etagA + ", etag B: " + etagB + ")";
+    }
+}
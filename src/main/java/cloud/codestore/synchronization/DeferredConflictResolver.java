@@ -0,0 +1,215 @@
+package cloud.codestore.synchronization;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link ConflictResolver} which does not resolve conflicts during the synchronization.
+ * Instead, every conflict is recorded and the synchronization continues with the next item immediately.
+ * The synchronization of a conflicting item counts as finished, but its {@link Status} remains unchanged.
+ * <br/><br/>
+ * After the synchronization, the application can resolve all recorded conflicts at once by calling
+ * {@link #resolveAll(ConflictHandler, int)}, for example after the user has decided how to resolve them.
+ * The recorded conflicts can be saved to and loaded from a file in the meantime.
+ *
+ * @param <I> the type of an item.
+ */
+public class DeferredConflictResolver<I> extends ConflictResolver<I>
+{
+    private static final String DELIMITER = ",";
+    
+    private final Map<String, DeferredConflict> conflicts = new ConcurrentHashMap<>();
+    
+    @Override
+    public void resolve(String itemId, String etagA, String etagB)
+    {
+        conflicts.put(itemId, new DeferredConflict(itemId, etagA, etagB));
+    }
+    
+    /**
+     * @return all recorded conflicts which are not resolved yet.
+     */
+    public List<DeferredConflict> getConflicts()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(conflicts.values()));
+    }
+    
+    /**
+     * Resolves all recorded conflicts with the given {@link ConflictResolver}.
+     * See {@link #resolveAll(ConflictHandler, int)} for details.
+     *
+     * @param conflictResolver the {@link ConflictResolver} which applies the chosen outcome of every conflict.
+     *         If {@code threadCount} is greater than 1, it must be thread safe.
+     * @param threadCount the number of threads which resolve the conflicts in parallel.
+     *
+     * @return the IDs of the items whose conflicts could not be resolved mapped to the corresponding exception.
+     */
+    public Map<String, Exception> resolveAll(ConflictResolver<I> conflictResolver, int threadCount)
+    {
+        Objects.requireNonNull(conflictResolver);
+        conflictResolver.setItemSets(getItemSetA(), getItemSetB(), getStatus());
+        return resolveAll(ConflictResolver.asConflictHandler(conflictResolver), threadCount);
+    }
+    
+    /**
+     * Resolves all recorded conflicts with the given {@link ConflictHandler}.
+     * Every conflict is passed as a separate {@link Conflict} object, so the conflicts can be resolved in parallel
+     * without any thread-bound state.
+     * <br/><br/>
+     * Before a conflict is resolved, the current etags of the item are compared with the recorded ones.
+     * If the item has been changed in the meantime, the conflict is discarded without calling the handler.
+     * It will be detected again by the next synchronization if it still exists.
+     * <br/><br/>
+     * Successfully resolved conflicts are removed. Conflicts which could not be resolved remain recorded.
+     *
+     * @param conflictHandler the {@link ConflictHandler} which applies the chosen outcome of every conflict.
+     *         If {@code threadCount} is greater than 1, it must be thread safe.
+     * @param threadCount the number of threads which resolve the conflicts in parallel.
+     *
+     * @return the IDs of the items whose conflicts could not be resolved mapped to the corresponding exception.
+     */
+    public Map<String, Exception> resolveAll(ConflictHandler<I> conflictHandler, int threadCount)
+    {
+        Objects.requireNonNull(conflictHandler);
+        
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        List<DeferredConflict> pendingConflicts = getConflicts();
+        if(threadCount <= 1)
+        {
+            for(DeferredConflict conflict : pendingConflicts)
+                resolve(conflict, conflictHandler, failures);
+        }
+        else
+        {
+            resolveConcurrently(pendingConflicts, conflictHandler, failures, threadCount);
+        }
+        
+        return failures;
+    }
+    
+    /**
+     * Saves the recorded conflicts into the given file.
+     *
+     * @param file the file to save the conflicts to.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public void save(Path file) throws IOException
+    {
+        List<String> lines = conflicts.values()
+                                      .stream()
+                                      .map(conflict -> String.join(DELIMITER,
+                                                                   conflict.getItemId(),
+                                                                   toString(conflict.getEtagA()),
+                                                                   toString(conflict.getEtagB())))
+                                      .collect(Collectors.toList());
+        
+        Files.write(file, lines);
+    }
+    
+    /**
+     * Loads conflicts which were saved by {@link #save(Path)} and adds them to the recorded conflicts.
+     *
+     * @param file the file which contains the conflicts.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public void load(Path file) throws IOException
+    {
+        for(String line : Files.readAllLines(file))
+        {
+            if(line.isEmpty())
+                continue;
+            
+            String[] split = line.split(DELIMITER, -1);
+            DeferredConflict conflict = new DeferredConflict(split[0], toEtag(split[1]), toEtag(split[2]));
+            conflicts.put(conflict.getItemId(), conflict);
+        }
+    }
+    
+    private void resolveConcurrently(
+            List<DeferredConflict> pendingConflicts,
+            ConflictHandler<I> conflictHandler,
+            Map<String, Exception> failures,
+            int threadCount
+    )
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>(pendingConflicts.size());
+            for(DeferredConflict conflict : pendingConflicts)
+                futures.add(executorService.submit(() -> resolve(conflict, conflictHandler, failures)));
+            
+            for(Future<?> future : futures)
+                future.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+        }
+        catch(ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+    
+    private void resolve(DeferredConflict conflict, ConflictHandler<I> conflictHandler, Map<String, Exception> failures)
+    {
+        String itemId = conflict.getItemId();
+        try
+        {
+            if(isCurrent(conflict))
+            {
+                conflictHandler.resolve(new Conflict<>(itemId,
+                                                       conflict.getEtagA(),
+                                                       conflict.getEtagB(),
+                                                       getItemSetA(),
+                                                       getItemSetB(),
+                                                       getStatus()));
+            }
+            
+            conflicts.remove(itemId, conflict);
+        }
+        catch(Exception exception)
+        {
+            failures.put(itemId, exception);
+        }
+    }
+    
+    private boolean isCurrent(DeferredConflict conflict) throws Exception
+    {
+        String itemId = conflict.getItemId();
+        return getItemSetA().contains(itemId) &&
+               getItemSetB().contains(itemId) &&
+               Objects.equals(conflict.getEtagA(), getItemSetA().getEtag(itemId)) &&
+               Objects.equals(conflict.getEtagB(), getItemSetB().getEtag(itemId));
+    }
+    
+    private static String toString(String etag)
+    {
+        return etag == null ? "" : etag;
+    }
+    
+    private static String toEtag(String value)
+    {
+        return value.isEmpty() ? null : value;
+    }
+}
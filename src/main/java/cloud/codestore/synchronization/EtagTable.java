@@ -0,0 +1,79 @@
+package cloud.codestore.synchronization;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The etags which were prefetched from the {@link BulkEtagItemSet}s during a synchronization run.
+ * <br/><br/>
+ * The etags are prefetched in windows just ahead of the processed items. Only the etags of the current
+ * and the previous window are kept, so the size of the table is bounded by the prefetch size.
+ * The windows are started by a single thread while the etags can be read by multiple threads.
+ */
+class EtagTable
+{
+    private static final int RETAINED_WINDOWS = 2;
+    
+    private final Map<ItemSet<?>, Map<String, String>> etags = new IdentityHashMap<>();
+    private final Deque<List<String>> windows = new ArrayDeque<>();
+    
+    EtagTable() {}
+    
+    /**
+     * @param itemSets the {@link ItemSet}s whose etags are prefetched.
+     */
+    EtagTable(Collection<? extends ItemSet<?>> itemSets)
+    {
+        for(ItemSet<?> itemSet : itemSets)
+            etags.put(itemSet, new ConcurrentHashMap<>());
+    }
+    
+    /**
+     * Starts a new window and discards the etags of the windows which are older than the previous one.
+     *
+     * @param itemIds the IDs of the items of the new window.
+     */
+    void startWindow(List<String> itemIds)
+    {
+        windows.addLast(itemIds);
+        while(windows.size() > RETAINED_WINDOWS)
+        {
+            List<String> discardedItemIds = windows.removeFirst();
+            for(Map<String, String> itemSetEtags : etags.values())
+                for(String itemId : discardedItemIds)
+                    itemSetEtags.remove(itemId);
+        }
+    }
+    
+    /**
+     * @param itemSet the {@link ItemSet} the etags were read from.
+     * @param chunk the IDs of the items mapped to their etags.
+     */
+    void put(ItemSet<?> itemSet, Map<String, String> chunk)
+    {
+        Map<String, String> itemSetEtags = etags.get(itemSet);
+        if(itemSetEtags == null)
+            return;
+        
+        for(Map.Entry<String, String> entry : chunk.entrySet())
+            if(entry.getValue() != null)
+                itemSetEtags.put(entry.getKey(), entry.getValue());
+    }
+    
+    /**
+     * @param itemSet an {@link ItemSet}.
+     * @param itemId the ID of an item.
+     *
+     * @return the prefetched etag of the item or {@code null} if no etag was prefetched.
+     */
+    String get(ItemSet<?> itemSet, String itemId)
+    {
+        Map<String, String> itemSetEtags = etags.get(itemSet);
+        return itemSetEtags == null ? null : itemSetEtags.get(itemId);
+    }
+}
@@ -0,0 +1,346 @@
+package cloud.codestore.synchronization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The union of the item IDs of several {@link ItemSet}s and the {@link Status}, which is sorted on disk.
+ * It is used if the IDs do not fit into memory at once.
+ * <br/><br/>
+ * The IDs of every source are read by {@link ItemSet#streamItemIds()} and {@link Status#streamItemIds()}.
+ * At most {@code runSize} IDs are collected in memory, sorted and written into a temporary run file.
+ * Afterwards, the run files are merged into a single sorted file without duplicates.
+ * At most {@value #MERGE_FAN_IN} run files are merged at once, so the number of open files is bounded as well.
+ * The iteration reads the IDs from the merged file, so the memory consumption does not depend on the number of items.
+ * <br/><br/>
+ * The temporary files are deleted by {@link #close()}.
+ */
+class ExternalItemIdUnion extends AbstractCollection<String> implements Closeable
+{
+    private static final int MERGE_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 65536;
+    
+    private final Path directory;
+    private final List<Closeable> openStreams = Collections.synchronizedList(new ArrayList<>());
+    private Run union;
+    private int runCount;
+    
+    private ExternalItemIdUnion(Path directory)
+    {
+        this.directory = directory;
+    }
+    
+    /**
+     * Sorts the IDs of the given sources on disk.
+     *
+     * @param itemSets the {@link ItemSet}s whose IDs are part of the union.
+     * @param status the {@link Status} whose IDs are part of the union.
+     * @param filter a {@link Predicate} which decides whether an ID is part of the union at all.
+     * @param parentDirectory the directory in which the temporary files are created.
+     * @param runSize the maximum number of IDs which are kept in memory.
+     *
+     * @return the sorted union of the IDs.
+     *
+     * @throws IOException if the temporary files could not be written.
+     */
+    static ExternalItemIdUnion create(
+            List<? extends ItemSet<?>> itemSets,
+            Status status,
+            Predicate<String> filter,
+            Path parentDirectory,
+            int runSize
+    ) throws IOException
+    {
+        if(runSize <= 0)
+            throw new IllegalArgumentException("The run size must be greater than 0");
+        
+        ExternalItemIdUnion union = new ExternalItemIdUnion(Files.createTempDirectory(parentDirectory, "item-ids"));
+        try
+        {
+            List<Run> runs = new ArrayList<>();
+            List<String> buffer = new ArrayList<>(runSize);
+            List<Supplier<Stream<String>>> sources = new ArrayList<>();
+            for(ItemSet<?> itemSet : itemSets)
+                sources.add(itemSet::streamItemIds);
+            sources.add(status::streamItemIds);
+            
+            for(Supplier<Stream<String>> source : sources)
+            {
+                try(Stream<String> stream = source.get())
+                {
+                    Iterator<String> iterator = stream.iterator();
+                    while(iterator.hasNext())
+                    {
+                        String itemId = iterator.next();
+                        if(!filter.test(itemId))
+                            continue;
+                        
+                        buffer.add(itemId);
+                        if(buffer.size() == runSize)
+                        {
+                            runs.add(union.writeRun(buffer));
+                            buffer.clear();
+                        }
+                    }
+                }
+            }
+            
+            if(!buffer.isEmpty() || runs.isEmpty())
+                runs.add(union.writeRun(buffer));
+            
+            union.union = union.merge(runs);
+            return union;
+        }
+        catch(IOException | RuntimeException exception)
+        {
+            try
+            {
+                union.close();
+            }
+            catch(IOException closeException)
+            {
+                exception.addSuppressed(closeException);
+            }
+            
+            throw exception;
+        }
+    }
+    
+    @Override
+    public int size()
+    {
+        return (int) Math.min(Integer.MAX_VALUE, union.count);
+    }
+    
+    @Override
+    public Iterator<String> iterator()
+    {
+        try
+        {
+            RunReader reader = new RunReader(union);
+            openStreams.add(reader);
+            return new Iterator<>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return reader.current != null;
+                }
+                
+                @Override
+                public String next()
+                {
+                    if(reader.current == null)
+                        throw new NoSuchElementException();
+                    
+                    try
+                    {
+                        String itemId = reader.current;
+                        reader.advance();
+                        return itemId;
+                    }
+                    catch(IOException exception)
+                    {
+                        throw new UncheckedIOException(exception);
+                    }
+                }
+            };
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+    
+    /**
+     * Closes all open iterators and deletes the temporary files.
+     *
+     * @throws IOException if the temporary files could not be deleted.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized(openStreams)
+        {
+            for(Closeable stream : openStreams)
+                stream.close();
+            
+            openStreams.clear();
+        }
+        
+        try(Stream<Path> files = Files.list(directory))
+        {
+            for(Path file : (Iterable<Path>) files::iterator)
+                Files.delete(file);
+        }
+        
+        Files.delete(directory);
+    }
+    
+    /**
+     * Sorts the given IDs and writes them into a new run file without duplicates.
+     */
+    private Run writeRun(List<String> itemIds) throws IOException
+    {
+        Collections.sort(itemIds);
+        Run run = newRun();
+        try(DataOutputStream output = openOutput(run))
+        {
+            String previous = null;
+            for(String itemId : itemIds)
+            {
+                if(itemId.equals(previous))
+                    continue;
+                
+                output.writeUTF(itemId);
+                previous = itemId;
+                run.count++;
+            }
+        }
+        
+        return run;
+    }
+    
+    /**
+     * Merges the given runs until a single run is left.
+     */
+    private Run merge(List<Run> runs) throws IOException
+    {
+        while(runs.size() > 1)
+        {
+            List<Run> mergedRuns = new ArrayList<>();
+            for(int i = 0; i < runs.size(); i += MERGE_FAN_IN)
+                mergedRuns.add(mergeRuns(runs.subList(i, Math.min(runs.size(), i + MERGE_FAN_IN))));
+            
+            runs = mergedRuns;
+        }
+        
+        return runs.get(0);
+    }
+    
+    private Run mergeRuns(List<Run> runs) throws IOException
+    {
+        if(runs.size() == 1)
+            return runs.get(0);
+        
+        Run mergedRun = newRun();
+        PriorityQueue<RunReader> readers = new PriorityQueue<>(runs.size(), Comparator.comparing(reader -> reader.current));
+        try(DataOutputStream output = openOutput(mergedRun))
+        {
+            for(Run run : runs)
+            {
+                RunReader reader = new RunReader(run);
+                if(reader.current == null)
+                    reader.close();
+                else
+                    readers.add(reader);
+            }
+            
+            String previous = null;
+            while(!readers.isEmpty())
+            {
+                RunReader reader = readers.poll();
+                if(!reader.current.equals(previous))
+                {
+                    output.writeUTF(reader.current);
+                    previous = reader.current;
+                    mergedRun.count++;
+                }
+                
+                reader.advance();
+                if(reader.current == null)
+                    reader.close();
+                else
+                    readers.add(reader);
+            }
+        }
+        finally
+        {
+            for(RunReader reader : readers)
+                reader.close();
+        }
+        
+        for(Run run : runs)
+            Files.delete(run.file);
+        
+        return mergedRun;
+    }
+    
+    private Run newRun()
+    {
+        return new Run(directory.resolve("run-" + runCount++ + ".dat"));
+    }
+    
+    private static DataOutputStream openOutput(Run run) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run.file), BUFFER_SIZE));
+    }
+    
+    /**
+     * A file which contains sorted IDs without duplicates.
+     */
+    private static class Run
+    {
+        private final Path file;
+        private long count;
+        
+        Run(Path file)
+        {
+            this.file = file;
+        }
+    }
+    
+    /**
+     * Reads the IDs of a {@link Run} one after the other. The current ID is {@code null} at the end of the run.
+     */
+    private static class RunReader implements Closeable
+    {
+        private final DataInputStream input;
+        private long remaining;
+        private String current;
+        
+        RunReader(Run run) throws IOException
+        {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), BUFFER_SIZE));
+            this.remaining = run.count;
+            advance();
+        }
+        
+        void advance() throws IOException
+        {
+            if(remaining == 0)
+            {
+                current = null;
+                input.close();
+                return;
+            }
+            
+            current = input.readUTF();
+            remaining--;
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cloud.codestore.synchronization;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Exception in case buffered changes of a {@link Flushable} {@link ItemSet} could not be written.
+ * It contains the IDs of the affected items, so the synchronization can treat them as not synchronized.
+ */
+public class FlushException extends IOException
+{
+    private final Map<String, Exception> failures;
+    
+    /**
+     * @param failures the IDs of the items whose changes could not be written mapped to the corresponding exception.
+     */
+    public FlushException(Map<String, Exception> failures)
+    {
+        super("The changes of " + failures.size() + " item(s) could not be written");
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+    
+    /**
+     * @return the IDs of the items whose changes could not be written mapped to the corresponding exception.
+     */
+    public Map<String, Exception> getFailures()
+    {
+        return failures;
+    }
+}
@@ -21,8 +21,9 @@ public class ImmutableItemSynchronization<I> extends Synchronization<I>
     @Override
     void synchronizeItem(String itemId) throws Exception
     {
-        boolean existsOnA = getItemSetA().contains(itemId);
-        boolean existsOnB = getItemSetB().contains(itemId);
+        ParallelLookup.Result<Boolean> exists = lookup(itemSet -> itemSet.contains(itemId));
+        boolean existsOnA = exists.getA();
+        boolean existsOnB = exists.getB();
         boolean existsInStatus = getStatus().contains(itemId);
         
         if(existsOnA && existsOnB)
@@ -48,6 +49,18 @@ public class ImmutableItemSynchronization<I> extends Synchronization<I>
             deleteInStatus(itemId);
     }
     
+    @Override
+    String readStatusEtag(String itemId)
+    {
+        return null;
+    }
+    
+    @Override
+    void putStatus(String itemId, String etag)
+    {
+        getStatus().put(itemId);
+    }
+    
     private void addToStatus(String itemId)
     {
         getStatus().put(itemId);
@@ -62,25 +75,27 @@ public class ImmutableItemSynchronization<I> extends Synchronization<I>
     {
         getItemSetA().delete(itemId);
         deleteInStatus(itemId);
+        record(itemId, SyncAction.DELETED_ON_A);
     }
     
     private void deleteFromB(String itemId) throws Exception
     {
         getItemSetB().delete(itemId);
         deleteInStatus(itemId);
+        record(itemId, SyncAction.DELETED_ON_B);
     }
     
     private void createOnB(String itemId) throws Exception
     {
-        I item = getItemSetA().getItem(itemId);
-        getItemSetB().addItem(itemId, item);
+        transferItem(getItemSetA(), getItemSetB(), itemId, false);
         addToStatus(itemId);
+        record(itemId, SyncAction.CREATED_ON_B);
     }
     
     private void createOnA(String itemId) throws Exception
     {
-        I item = getItemSetB().getItem(itemId);
-        getItemSetA().addItem(itemId, item);
+        transferItem(getItemSetB(), getItemSetA(), itemId, false);
         addToStatus(itemId);
+        record(itemId, SyncAction.CREATED_ON_A);
     }
 }
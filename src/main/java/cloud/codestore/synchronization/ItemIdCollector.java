@@ -0,0 +1,77 @@
+package cloud.codestore.synchronization;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Collects item IDs from multiple threads with as little allocation as possible.
+ * <br/><br/>
+ * The IDs are appended to several striped arrays. Every thread appends to the stripe chosen by its thread ID,
+ * so threads of a thread pool rarely contend for the same lock. Since the arrays only grow,
+ * collecting an ID does not allocate a node or entry object.
+ */
+class ItemIdCollector
+{
+    private static final int STRIPE_COUNT = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+    
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    
+    ItemIdCollector()
+    {
+        for(int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+    }
+    
+    void add(String itemId)
+    {
+        int index = (int) Thread.currentThread().getId() & (stripes.length - 1);
+        stripes[index].add(itemId);
+    }
+    
+    /**
+     * @return an unmodifiable collection of all IDs collected so far.
+     */
+    Collection<String> toCollection()
+    {
+        int size = 0;
+        String[][] arrays = new String[stripes.length][];
+        for(int i = 0; i < stripes.length; i++)
+        {
+            arrays[i] = stripes[i].toArray();
+            size += arrays[i].length;
+        }
+        
+        if(size == 0)
+            return Collections.emptyList();
+        
+        String[] result = new String[size];
+        int offset = 0;
+        for(String[] array : arrays)
+        {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+    
+    private static class Stripe
+    {
+        private String[] itemIds = new String[0];
+        private int size;
+        
+        synchronized void add(String itemId)
+        {
+            if(size == itemIds.length)
+                itemIds = Arrays.copyOf(itemIds, Math.max(16, size * 2));
+            
+            itemIds[size++] = itemId;
+        }
+        
+        synchronized String[] toArray()
+        {
+            return Arrays.copyOf(itemIds, size);
+        }
+    }
+}
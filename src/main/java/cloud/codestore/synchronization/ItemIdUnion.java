@@ -0,0 +1,136 @@
+package cloud.codestore.synchronization;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A lazy, read-only view of the union of the item IDs of several {@link ItemSet}s and the {@link Status}.
+ * Instead of copying all IDs into a new set, the sources are iterated one after the other
+ * and an ID is skipped if it is contained in one of the previous sources.
+ * So the iteration returns the IDs of set A, then the IDs of set B which are not in A and so on
+ * and finally the IDs of the status which are not in any item set.
+ * <br/><br/>
+ * The duplicate check is done by calling {@link ItemSet#contains(String)} and {@link Status#contains(String)}
+ * while iterating. The sources are therefore expected to answer {@code contains} cheaply.
+ * Since the items are synchronized while the IDs are iterated, the sets returned by {@code getItemIds()}
+ * must either be snapshots or tolerate concurrent modification, like the key set of a
+ * {@link java.util.concurrent.ConcurrentHashMap}.
+ */
+class ItemIdUnion extends AbstractCollection<String>
+{
+    private final List<Set<String>> itemIds = new ArrayList<>();
+    private final List<Predicate<String>> containsChecks = new ArrayList<>();
+    private final Predicate<String> filter;
+    
+    /**
+     * @param itemSets the {@link ItemSet}s whose IDs are part of the union.
+     * @param status the {@link Status} whose IDs are part of the union.
+     * @param filter a {@link Predicate} which decides whether an ID is part of the union at all.
+     */
+    ItemIdUnion(List<? extends ItemSet<?>> itemSets, Status status, Predicate<String> filter)
+    {
+        for(ItemSet<?> itemSet : itemSets)
+        {
+            itemIds.add(itemSet.getItemIds());
+            containsChecks.add(itemSet::contains);
+        }
+        
+        itemIds.add(status.getItemIds());
+        containsChecks.add(status::contains);
+        this.filter = filter;
+    }
+    
+    /**
+     * Returns the sum of the sizes of all sources, which is an upper bound of the number of IDs in the union.
+     * Counting the exact size would require a pass over all sources with a {@code contains} check for every ID.
+     * The iteration returns each ID only once, so it may return less IDs than the size states.
+     */
+    @Override
+    public int size()
+    {
+        long size = 0;
+        for(Set<String> sourceItemIds : itemIds)
+            size += sourceItemIds.size();
+        
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public boolean contains(Object object)
+    {
+        if(!(object instanceof String) || !filter.test((String) object))
+            return false;
+        
+        for(Predicate<String> containsCheck : containsChecks)
+            if(containsCheck.test((String) object))
+                return true;
+        
+        return false;
+    }
+    
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<>()
+        {
+            private int source;
+            private Iterator<String> iterator = itemIds.get(0).iterator();
+            private String next;
+            
+            @Override
+            public boolean hasNext()
+            {
+                while(next == null)
+                {
+                    if(iterator.hasNext())
+                    {
+                        String itemId = iterator.next();
+                        if(isPartOfUnion(itemId, source))
+                            next = itemId;
+                    }
+                    else if(source + 1 < itemIds.size())
+                    {
+                        iterator = itemIds.get(++source).iterator();
+                    }
+                    else
+                    {
+                        return false;
+                    }
+                }
+                
+                return true;
+            }
+            
+            @Override
+            public String next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                
+                String itemId = next;
+                next = null;
+                return itemId;
+            }
+        };
+    }
+    
+    /**
+     * @return whether the given ID of the given source passes the filter and is not contained in any previous source.
+     */
+    private boolean isPartOfUnion(String itemId, int source)
+    {
+        if(!filter.test(itemId))
+            return false;
+        
+        for(int previousSource = 0; previousSource < source; previousSource++)
+            if(containsChecks.get(previousSource).test(itemId))
+                return false;
+        
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package cloud.codestore.synchronization;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The moves which should be executed on one side of a synchronization.
+ * <br/><br/>
+ * Items which were created on the opposite side and items which should be deleted from this side are indexed
+ * by their etag. A created item and a deleted item with the same etag are paired to a move from the ID of the
+ * deleted item to the ID of the created item. Every item is paired at most once.
+ * <br/><br/>
+ * The index is built before the items are processed. Afterwards, it is only read, so it can be shared by multiple threads.
+ */
+class ItemMoves
+{
+    private final Map<String, String> createdItems = new HashMap<>();
+    private final Map<String, String> deletedItems = new HashMap<>();
+    private final Map<String, String> sourceByTarget = new HashMap<>();
+    private final Map<String, String> targetBySource = new HashMap<>();
+    
+    /**
+     * @param itemId the ID of an item which was created on the opposite side.
+     * @param etag the etag of the item.
+     */
+    void created(String itemId, String etag)
+    {
+        if(etag != null)
+            createdItems.putIfAbsent(etag, itemId);
+    }
+    
+    /**
+     * @param itemId the ID of an unchanged item which should be deleted from this side.
+     * @param etag the etag of the item.
+     */
+    void deleted(String itemId, String etag)
+    {
+        if(etag != null)
+            deletedItems.putIfAbsent(etag, itemId);
+    }
+    
+    /**
+     * Pairs the indexed items by their etag and discards the index.
+     */
+    void pair()
+    {
+        for(Map.Entry<String, String> created : createdItems.entrySet())
+        {
+            String sourceId = deletedItems.get(created.getKey());
+            if(sourceId != null)
+            {
+                sourceByTarget.put(created.getValue(), sourceId);
+                targetBySource.put(sourceId, created.getValue());
+            }
+        }
+        
+        createdItems.clear();
+        deletedItems.clear();
+    }
+    
+    /**
+     * @return whether the item with the given ID is the target of a move.
+     */
+    boolean isTarget(String itemId)
+    {
+        return sourceByTarget.containsKey(itemId);
+    }
+    
+    /**
+     * @return whether the item with the given ID is the source of a move.
+     */
+    boolean isSource(String itemId)
+    {
+        return targetBySource.containsKey(itemId);
+    }
+    
+    /**
+     * @return the ID of the item which should be moved to the given target ID.
+     */
+    String getSource(String targetId)
+    {
+        return sourceByTarget.get(targetId);
+    }
+}
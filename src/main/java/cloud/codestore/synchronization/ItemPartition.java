@@ -0,0 +1,132 @@
+package cloud.codestore.synchronization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents one of several disjoint partitions of the items.
+ * The partition of an item is determined by a stable hash of its ID,
+ * so every JVM or node computes the same partition for the same item.
+ * <br/><br/>
+ * A large synchronization can be split into several smaller ones by passing a different partition to each
+ * {@link Synchronization}. Each of them only synchronizes the items of its partition and should use its own
+ * {@link Status} which only contains the items of that partition.
+ */
+public final class ItemPartition
+{
+    private final int index;
+    private final int count;
+    
+    private ItemPartition(int index, int count)
+    {
+        this.index = index;
+        this.count = count;
+    }
+    
+    /**
+     * @param index the index of the partition, starting with 0.
+     * @param count the total number of partitions.
+     *
+     * @return the partition with the given index.
+     *
+     * @throws IllegalArgumentException if {@code count} is less than 1 or the index is not within {@code [0, count)}.
+     */
+    public static ItemPartition of(int index, int count)
+    {
+        if(count < 1)
+            throw new IllegalArgumentException("The number of partitions must be at least 1");
+        if(index < 0 || index >= count)
+            throw new IllegalArgumentException("The index must be between 0 and " + (count - 1));
+        
+        return new ItemPartition(index, count);
+    }
+    
+    /**
+     * @param count the total number of partitions.
+     *
+     * @return all partitions.
+     */
+    public static List<ItemPartition> all(int count)
+    {
+        List<ItemPartition> partitions = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+            partitions.add(of(i, count));
+        
+        return Collections.unmodifiableList(partitions);
+    }
+    
+    /**
+     * @param itemId the ID of an item.
+     * @param count the total number of partitions.
+     *
+     * @return the index of the partition which contains the given item.
+     */
+    public static int indexOf(String itemId, int count)
+    {
+        return Math.floorMod(hash(itemId), count);
+    }
+    
+    /**
+     * @return the index of this partition.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+    
+    /**
+     * @return the total number of partitions.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+    
+    /**
+     * @param itemId the ID of an item.
+     *
+     * @return whether the given item belongs to this partition.
+     */
+    public boolean contains(String itemId)
+    {
+        return indexOf(itemId, count) == index;
+    }
+    
+    /**
+     * The hash code of a String is specified by the Java language and therefore stable.
+     * It is mixed to spread similar IDs like paths with a common prefix evenly across the partitions.
+     */
+    private static int hash(String itemId)
+    {
+        int hash = itemId.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+    
+    @Override
+    public boolean equals(Object object)
+    {
+        if(!(object instanceof ItemPartition))
+            return false;
+        
+        ItemPartition other = (ItemPartition) object;
+        return index == other.index && count == other.count;
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return 31 * index + count;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "partition " + (index + 1) + " of " + count;
+    }
+}
@@ -1,12 +1,20 @@
 package cloud.codestore.synchronization;
 
-import java.util.Set;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 
 abstract class ItemProcessor
 {
     private Synchronization<?> synchronization;
     private ProgressListener progressListener;
+    private Comparator<String> priority;
+    private SyncStatistics statistics = new SyncStatistics();
+    private Duration timeout;
     private boolean canceled;
+    private volatile boolean timedOut;
     
     ItemProcessor(Synchronization<?> synchronization, ProgressListener progressListener)
     {
@@ -14,6 +22,51 @@ abstract class ItemProcessor
         this.progressListener = progressListener;
     }
     
+    /**
+     * @param priority a {@link Comparator} which defines the order in which the items are processed
+     *         or {@code null} if the order does not matter.
+     */
+    void setPriority(Comparator<String> priority)
+    {
+        this.priority = priority;
+    }
+    
+    Comparator<String> getPriority()
+    {
+        return priority;
+    }
+    
+    /**
+     * @param statistics the {@link SyncStatistics} which record the outcome and latency of every processed item.
+     */
+    void setStatistics(SyncStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+    
+    /**
+     * @param timeout the maximum duration of {@link #process(Collection)} or {@code null} to wait until all items are processed.
+     */
+    void setTimeout(Duration timeout)
+    {
+        this.timeout = timeout;
+    }
+    
+    Duration getTimeout()
+    {
+        return timeout;
+    }
+    
+    void timedOut()
+    {
+        timedOut = true;
+    }
+    
+    boolean isTimedOut()
+    {
+        return timedOut;
+    }
+    
     void cancel()
     {
         canceled = true;
@@ -29,7 +82,38 @@ abstract class ItemProcessor
      *
      * @param itemIds the IDs of the items which should be processed.
      */
-    abstract void process(Set<String> itemIds);
+    abstract void process(Collection<String> itemIds);
+    
+    /**
+     * @param itemIds the IDs of the items which should be processed.
+     *
+     * @return the given item IDs in the order defined by the priority.
+     */
+    Collection<String> prioritize(Collection<String> itemIds)
+    {
+        if(priority == null)
+            return itemIds;
+        
+        List<String> sortedItemIds = new ArrayList<>(itemIds);
+        sortedItemIds.sort(priority);
+        return sortedItemIds;
+    }
+    
+    /**
+     * Synchronizes a single item and tracks the changes of its entry in the {@link Status}.
+     */
+    private void synchronizeItem(String itemId) throws Exception
+    {
+        StatusSnapshot.Entry previousEntry = synchronization.readStatus(itemId);
+        try
+        {
+            synchronization.synchronizeItem(itemId);
+        }
+        finally
+        {
+            synchronization.trackStatus(itemId, previousEntry);
+        }
+    }
     
     /**
      * Processes a single item.
@@ -38,14 +122,17 @@ abstract class ItemProcessor
      */
     void process(String itemId)
     {
+        long startTime = System.nanoTime();
         try
         {
             progressListener.synchronizationStarted(itemId);
-            synchronization.synchronizeItem(itemId);
+            synchronizeItem(itemId);
+            statistics.itemFinished(System.nanoTime() - startTime);
             progressListener.synchronizationFinished(itemId);
         }
         catch(Exception exception)
         {
+            statistics.itemFailed(itemId, exception, System.nanoTime() - startTime);
             progressListener.synchronizationFailed(itemId, exception);
         }
     }
@@ -1,6 +1,7 @@
 package cloud.codestore.synchronization;
 
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Represents a set of items.
@@ -14,6 +15,21 @@ public interface ItemSet<I>
      */
     Set<String> getItemIds();
     
+    /**
+     * Streams the IDs of all items in this {@link ItemSet}.
+     * It is used instead of {@link #getItemIds()} if the IDs of all items do not fit into memory,
+     * see {@link Synchronization#setExternalItemIdUnion(java.nio.file.Path, int)}.
+     * The default implementation streams the result of {@link #getItemIds()}.
+     * Implementations can override it to read the IDs page by page, for example from a remote listing.
+     * The stream is closed as soon as all IDs have been read.
+     *
+     * @return a stream of the IDs of all items.
+     */
+    default Stream<String> streamItemIds()
+    {
+        return getItemIds().stream();
+    }
+    
     /**
      * Checks whether this set contains the item with the given ID.
      *
@@ -0,0 +1,24 @@
+package cloud.codestore.synchronization;
+
+/**
+ * An {@link ItemSet} which is able to move an item to a new ID without transferring its content.
+ * <br/><br/>
+ * If the move detection of a {@link MutableItemSynchronization} is enabled, an item which was renamed on one side
+ * is renamed on the opposite side as well, instead of deleting the old item and copying the new item
+ * from one side to the other. For files, this is usually a cheap metadata operation.
+ *
+ * @param <I> the type of an item.
+ */
+public interface MovableItemSet<I> extends ItemSet<I>
+{
+    /**
+     * Moves the item with the given ID to a new ID.
+     * Afterwards, this set must not contain the source ID anymore.
+     *
+     * @param sourceId the current ID of the item.
+     * @param targetId the new ID of the item.
+     *
+     * @throws Exception if the item could not be moved.
+     */
+    void move(String sourceId, String targetId) throws Exception;
+}
@@ -0,0 +1,277 @@
+package cloud.codestore.synchronization;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Synchronizes mutable items between any number of replicas using a single {@link Status}.
+ * <br/><br/>
+ * Like the {@link MutableItemSynchronization}, it assumes that the etags are calculated homogeneously,
+ * so a single etag per item in the {@link Status} is sufficient for all replicas.
+ * If an item was created or updated on one or more replicas, it is read once from one of these replicas
+ * and written to all other replicas. If an item was deleted on any replica, it is deleted on all replicas.
+ * <br/><br/>
+ * If all replicas are {@link StreamingItemSet}s, the content of an item is not loaded into memory but streamed.
+ * In this case, the source replica is opened and read once per target replica,
+ * because every target consumes its own channel at its own pace.
+ * <br/><br/>
+ * By default, the target replicas are written one after the other.
+ * They are only written in parallel if an executor is set via {@link #setFanOutExecutor(Executor)}.
+ * <br/><br/>
+ * If an item was changed differently on several replicas, the synchronization of the item fails
+ * with an {@link UnresolvedConflictException}. A {@link ConflictResolver} is not supported.
+ * <br/><br/>
+ * The executed {@link SyncAction}s are recorded from the perspective of the first replica, which is side A,
+ * and the other replicas, which are side B. For example, an item which was created on the first replica
+ * and written to all other replicas is recorded once as {@link SyncAction#CREATED_ON_B}.
+ *
+ * @param <I> the type of an item.
+ */
+public class MultiReplicaSynchronization<I> extends Synchronization<I>
+{
+    private Executor fanOutExecutor = Runnable::run;
+    
+    /**
+     * @param replicas the {@link ItemSet}s which should be synchronized with each other.
+     * @param status the {@link Status} which represents the items which were present after the last synchronization.
+     *
+     * @throws IllegalArgumentException if there are less than two replicas.
+     */
+    public MultiReplicaSynchronization(List<ItemSet<I>> replicas, Status status)
+    {
+        super(replicas, status);
+    }
+    
+    /**
+     * Sets the {@link Executor} which is used to write an item to several replicas in parallel.
+     * By default, the replicas are written one after the other by the thread which synchronizes the item,
+     * so the fan-out is sequential unless an executor is set.
+     * <br/>
+     * Note that the executor must not be the one which executes the synchronization of the items.
+     * Otherwise, a synchronization thread may wait for a write which cannot be started.
+     *
+     * @param fanOutExecutor the {@link Executor} to write the replicas in parallel.
+     */
+    public void setFanOutExecutor(Executor fanOutExecutor)
+    {
+        Objects.requireNonNull(fanOutExecutor);
+        this.fanOutExecutor = fanOutExecutor;
+    }
+    
+    @Override
+    void synchronizeItem(String itemId) throws Exception
+    {
+        List<ItemSet<I>> existing = new ArrayList<>();
+        List<ItemSet<I>> missing = new ArrayList<>();
+        for(ItemSet<I> replica : getItemSets())
+        {
+            if(replica.contains(itemId))
+                existing.add(replica);
+            else
+                missing.add(replica);
+        }
+        
+        boolean existsInStatus = getStatus().contains(itemId);
+        if(existing.isEmpty())
+        {
+            if(existsInStatus)
+                deleteFromStatus(itemId);
+        }
+        else if(existsInStatus)
+        {
+            if(missing.isEmpty())
+                synchronizeUpdates(itemId, existing);
+            else
+                deleteFromReplicas(itemId, existing);
+        }
+        else
+        {
+            synchronizeCreation(itemId, existing, missing);
+        }
+    }
+    
+    private void synchronizeUpdates(String itemId, List<ItemSet<I>> replicas) throws Exception
+    {
+        String statusEtag = getStatus().getEtag(itemId);
+        ItemSet<I> source = null;
+        String newEtag = null;
+        List<ItemSet<I>> outdated = new ArrayList<>();
+        
+        for(ItemSet<I> replica : replicas)
+        {
+            String etag = getEtag(replica, itemId);
+            if(Objects.equals(statusEtag, etag))
+            {
+                outdated.add(replica);
+            }
+            else if(source == null)
+            {
+                source = replica;
+                newEtag = etag;
+            }
+            else if(!Objects.equals(newEtag, etag))
+            {
+                recordConflict(itemId);
+                throw new UnresolvedConflictException("The item " + itemId + " was updated on several replicas");
+            }
+        }
+        
+        if(source != null)
+        {
+            copyItem(itemId, source, outdated, true);
+            getStatus().put(itemId, newEtag);
+            record(itemId, outdated, SyncAction.UPDATED_ON_A, SyncAction.UPDATED_ON_B);
+        }
+    }
+    
+    private void synchronizeCreation(String itemId, List<ItemSet<I>> existing, List<ItemSet<I>> missing)
+            throws Exception
+    {
+        Set<String> etags = new HashSet<>();
+        for(ItemSet<I> replica : existing)
+            etags.add(getEtag(replica, itemId));
+        
+        if(etags.size() > 1)
+        {
+            recordConflict(itemId);
+            throw new UnresolvedConflictException("The item " + itemId + " was created on several replicas");
+        }
+        
+        ItemSet<I> source = existing.get(0);
+        copyItem(itemId, source, missing, false);
+        getStatus().put(itemId, etags.iterator().next());
+        record(itemId, missing, SyncAction.CREATED_ON_A, SyncAction.CREATED_ON_B);
+    }
+    
+    private void deleteFromReplicas(String itemId, List<ItemSet<I>> replicas) throws Exception
+    {
+        fanOut(replicas, replica -> replica.delete(itemId));
+        deleteFromStatus(itemId);
+        record(itemId, replicas, SyncAction.DELETED_ON_A, SyncAction.DELETED_ON_B);
+    }
+    
+    /**
+     * Records the action which was executed on the given replicas.
+     *
+     * @param actionOnA the action to record if the first replica was changed.
+     * @param actionOnB the action to record if any other replica was changed.
+     */
+    private void record(String itemId, List<ItemSet<I>> changedReplicas, SyncAction actionOnA, SyncAction actionOnB)
+    {
+        boolean changedA = false;
+        boolean changedB = false;
+        for(ItemSet<I> replica : changedReplicas)
+        {
+            if(replica == getItemSetA())
+                changedA = true;
+            else
+                changedB = true;
+        }
+        
+        if(changedA)
+            record(itemId, actionOnA);
+        if(changedB)
+            record(itemId, actionOnB);
+    }
+    
+    private void deleteFromStatus(String itemId)
+    {
+        getStatus().delete(itemId);
+    }
+    
+    /**
+     * Copies the item from the source to the target replicas.
+     * If the source and all targets are {@link StreamingItemSet}s, the item is streamed to every target,
+     * which opens and reads the source once per target.
+     * Otherwise, the item is read only once, regardless of the number of target replicas.
+     */
+    private void copyItem(String itemId, ItemSet<I> source, List<ItemSet<I>> targets, boolean existsOnTargets)
+            throws Exception
+    {
+        if(targets.size() == 1)
+        {
+            transferItem(source, targets.get(0), itemId, existsOnTargets);
+        }
+        else if(isStreamable(source, targets))
+        {
+            fanOut(targets, target -> transferItem(source, target, itemId, existsOnTargets));
+        }
+        else if(!targets.isEmpty())
+        {
+            I item = source.getItem(itemId);
+            fanOut(targets, target -> {
+                try
+                {
+                    if(existsOnTargets)
+                        target.updateItem(itemId, item);
+                    else
+                        target.addItem(itemId, item);
+                }
+                catch(Exception exception)
+                {
+                    recordWriteFailure(target);
+                    throw exception;
+                }
+            });
+        }
+    }
+    
+    private boolean isStreamable(ItemSet<I> source, List<ItemSet<I>> targets)
+    {
+        return source instanceof StreamingItemSet && targets.stream().allMatch(StreamingItemSet.class::isInstance);
+    }
+    
+    /**
+     * Executes the given operation on all replicas using the fan-out executor and waits until all of them are finished.
+     * If the operation failed on any replica, the first exception is thrown after all operations are finished.
+     */
+    private void fanOut(List<ItemSet<I>> replicas, ReplicaOperation<I> operation) throws Exception
+    {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(replicas.size());
+        for(ItemSet<I> replica : replicas)
+        {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try
+                {
+                    operation.execute(replica);
+                }
+                catch(Exception exception)
+                {
+                    throw new CompletionException(exception);
+                }
+            }, fanOutExecutor));
+        }
+        
+        Exception exception = null;
+        for(CompletableFuture<Void> future : futures)
+        {
+            try
+            {
+                future.join();
+            }
+            catch(CompletionException e)
+            {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                if(exception == null)
+                    exception = cause;
+                else
+                    exception.addSuppressed(cause);
+            }
+        }
+        
+        if(exception != null)
+            throw exception;
+    }
+    
+    @FunctionalInterface
+    private interface ReplicaOperation<I>
+    {
+        void execute(ItemSet<I> replica) throws Exception;
+    }
+}
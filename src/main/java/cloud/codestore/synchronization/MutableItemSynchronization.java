@@ -1,6 +1,9 @@
 package cloud.codestore.synchronization;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Synchronizes mutable items.
@@ -10,7 +13,12 @@ import java.util.Objects;
  */
 public class MutableItemSynchronization<I> extends Synchronization<I>
 {
-    private ConflictResolver<I> conflictResolver = new DefaultConflictResolver<>();
+    private ConflictHandler<I> conflictHandler = ConflictResolver.asConflictHandler(new DefaultConflictResolver<>());
+    private boolean moveDetection;
+    private boolean deduplication;
+    private Map<String, String> etagIndex;
+    private ItemMoves movesOnA = new ItemMoves();
+    private ItemMoves movesOnB = new ItemMoves();
     
     /**
      * @param itemSetA an {@link ItemSet} which represents the items on side A.
@@ -27,21 +35,141 @@ public class MutableItemSynchronization<I> extends Synchronization<I>
     {
         Objects.requireNonNull(conflictResolver);
         conflictResolver.setItemSets(getItemSetA(), getItemSetB(), getStatus());
-        this.conflictResolver = conflictResolver;
+        this.conflictHandler = ConflictResolver.asConflictHandler(conflictResolver);
     }
     
     @Override
-    void synchronizeItem(String itemId) throws Exception
+    public void setConflictHandler(ConflictHandler<I> conflictHandler)
+    {
+        Objects.requireNonNull(conflictHandler);
+        this.conflictHandler = conflictHandler;
+    }
+    
+    /**
+     * Enables the detection of moved items.
+     * By default, an item which was renamed on one side is deleted from the opposite side and copied again under its new ID.
+     * <br/>
+     * If the move detection is enabled and the opposite side is a {@link MovableItemSet}, the etags of all
+     * created and deleted items are indexed before the synchronization starts. A created item and a deleted item
+     * with the same etag are treated as a move, which is executed by {@link MovableItemSet#move(String, String)}
+     * instead of transferring the item. This requires an additional pass over all items, so it should only
+     * be enabled if items are moved frequently and transferring them is expensive.
+     *
+     * @param moveDetection whether moved items should be detected.
+     */
+    public void setMoveDetection(boolean moveDetection)
+    {
+        this.moveDetection = moveDetection;
+    }
+    
+    /**
+     * Enables the deduplication of items with identical content.
+     * By default, every created or updated item is transferred from one side to the other.
+     * <br/>
+     * If the deduplication is enabled and the target side is a {@link CopyableItemSet}, the items of the run
+     * are indexed by their etags in the {@link Status} before the synchronization starts. If the target side
+     * already contains an item with the same etag as the item which should be created or updated,
+     * it is copied by {@link CopyableItemSet#copyFrom(String, String)} instead of transferring the item.
+     * Items which are synchronized during the run are added to the index.
+     * <br/>
+     * The index only covers the items of the current run and is not built if a single item is synchronized.
+     *
+     * @param deduplication whether items with identical content should be copied on the target side.
+     */
+    public void setDeduplication(boolean deduplication)
+    {
+        this.deduplication = deduplication;
+    }
+    
+    @Override
+    void prepare(Collection<String> itemIds)
+    {
+        etagIndex = null;
+        if(deduplication && isCopyable() && itemIds.size() > 1)
+            etagIndex = createEtagIndex(itemIds);
+        
+        movesOnA = new ItemMoves();
+        movesOnB = new ItemMoves();
+        
+        boolean movableA = getItemSetA() instanceof MovableItemSet;
+        boolean movableB = getItemSetB() instanceof MovableItemSet;
+        if(!moveDetection || (!movableA && !movableB))
+            return;
+        
+        for(String itemId : itemIds)
+        {
+            try
+            {
+                indexMove(itemId, movableA, movableB);
+            }
+            catch(Exception exception)
+            {
+                // the item is synchronized without move detection
+            }
+        }
+        
+        movesOnA.pair();
+        movesOnB.pair();
+    }
+    
+    private boolean isCopyable()
+    {
+        return getItemSetA() instanceof CopyableItemSet || getItemSetB() instanceof CopyableItemSet;
+    }
+    
+    private Map<String, String> createEtagIndex(Collection<String> itemIds)
+    {
+        Map<String, String> index = new ConcurrentHashMap<>();
+        for(String itemId : itemIds)
+        {
+            String etag = getStatus().getEtag(itemId);
+            if(etag != null)
+                index.put(etag, itemId);
+        }
+        
+        return index;
+    }
+    
+    private void indexMove(String itemId, boolean movableA, boolean movableB) throws Exception
     {
         boolean existsOnA = getItemSetA().contains(itemId);
         boolean existsOnB = getItemSetB().contains(itemId);
-        boolean existsInStatus = getStatus().contains(itemId);
+        if(existsOnA == existsOnB)
+            return;
+        
+        ItemSet<I> itemSet = existsOnA ? getItemSetA() : getItemSetB();
+        boolean movableItemSet = existsOnA ? movableA : movableB;
+        boolean movableOppositeItemSet = existsOnA ? movableB : movableA;
+        ItemMoves moves = existsOnA ? movesOnA : movesOnB;
+        ItemMoves oppositeMoves = existsOnA ? movesOnB : movesOnA;
+        
+        if(!getStatus().contains(itemId))
+        {
+            if(movableOppositeItemSet)
+                oppositeMoves.created(itemId, getEtag(itemSet, itemId));
+        }
+        else if(movableItemSet)
+        {
+            String etag = getEtag(itemSet, itemId);
+            if(Objects.equals(etag, getStatus().getEtag(itemId)))
+                moves.deleted(itemId, etag);
+        }
+    }
     
+    @Override
+    void synchronizeItem(String itemId) throws Exception
+    {
+        ParallelLookup.Result<Boolean> exists = lookup(itemSet -> itemSet.contains(itemId));
+        boolean existsOnA = exists.getA();
+        boolean existsOnB = exists.getB();
+        boolean existsInStatus = getStatus().contains(itemId);
+        
         if(existsOnA && existsOnB)
         {
-            String etagA = getItemSetA().getEtag(itemId);
-            String etagB = getItemSetB().getEtag(itemId);
-        
+            ParallelLookup.Result<String> etags = lookupEtags(itemId);
+            String etagA = etags.getA();
+            String etagB = etags.getB();
+            
             if(existsInStatus)
             {
                 String statusEtag = getStatus().getEtag(itemId);
@@ -63,14 +191,24 @@ public class MutableItemSynchronization<I> extends Synchronization<I>
         else if(existsOnA)
         {
             if(existsInStatus)
-                deleteFromA(itemId);
+            {
+                if(!movesOnA.isSource(itemId))
+                    deleteFromA(itemId);
+            }
+            else if(movesOnB.isTarget(itemId))
+                moveOnB(itemId);
             else
                 createOnB(itemId);
         }
         else if(existsOnB)
         {
             if(existsInStatus)
-                deleteFromB(itemId);
+            {
+                if(!movesOnB.isSource(itemId))
+                    deleteFromB(itemId);
+            }
+            else if(movesOnA.isTarget(itemId))
+                moveOnA(itemId);
             else
                 createOnA(itemId);
         }
@@ -81,6 +219,8 @@ public class MutableItemSynchronization<I> extends Synchronization<I>
     private void addToStatus(String itemId, String etag)
     {
         getStatus().put(itemId, etag);
+        if(etagIndex != null && etag != null)
+            etagIndex.put(etag, itemId);
     }
     
     private void deleteFromStatus(String itemId)
@@ -92,42 +232,102 @@ public class MutableItemSynchronization<I> extends Synchronization<I>
     {
         getItemSetA().delete(itemId);
         deleteFromStatus(itemId);
+        record(itemId, SyncAction.DELETED_ON_A);
     }
     
     private void deleteFromB(String itemId) throws Exception
     {
         getItemSetB().delete(itemId);
         deleteFromStatus(itemId);
+        record(itemId, SyncAction.DELETED_ON_B);
     }
     
     private void createOnA(String itemId) throws Exception
     {
-        I item = getItemSetB().getItem(itemId);
-        getItemSetA().addItem(itemId, item);
-        String etag = getItemSetB().getEtag(itemId);
+        transfer(getItemSetB(), getItemSetA(), itemId, null, false);
+        String etag = getEtag(getItemSetB(), itemId);
         addToStatus(itemId, etag);
+        record(itemId, SyncAction.CREATED_ON_A);
     }
     
     private void createOnB(String itemId) throws Exception
     {
-        I item = getItemSetA().getItem(itemId);
-        getItemSetB().addItem(itemId, item);
-        String etag = getItemSetA().getEtag(itemId);
+        transfer(getItemSetA(), getItemSetB(), itemId, null, false);
+        String etag = getEtag(getItemSetA(), itemId);
+        addToStatus(itemId, etag);
+        record(itemId, SyncAction.CREATED_ON_B);
+    }
+    
+    /**
+     * Moves the item on side A which was moved on side B.
+     * The item at the old ID is not deleted separately, it is skipped when it is processed.
+     */
+    private void moveOnA(String itemId) throws Exception
+    {
+        String sourceId = movesOnA.getSource(itemId);
+        ((MovableItemSet<I>) getItemSetA()).move(sourceId, itemId);
+        String etag = getEtag(getItemSetB(), itemId);
+        deleteFromStatus(sourceId);
         addToStatus(itemId, etag);
+        record(itemId, SyncAction.MOVED_ON_A);
+    }
+    
+    /**
+     * Moves the item on side B which was moved on side A.
+     * The item at the old ID is not deleted separately, it is skipped when it is processed.
+     */
+    private void moveOnB(String itemId) throws Exception
+    {
+        String sourceId = movesOnB.getSource(itemId);
+        ((MovableItemSet<I>) getItemSetB()).move(sourceId, itemId);
+        String etag = getEtag(getItemSetA(), itemId);
+        deleteFromStatus(sourceId);
+        addToStatus(itemId, etag);
+        record(itemId, SyncAction.MOVED_ON_B);
     }
     
     private void updateOnB(String itemId, String etagA) throws Exception
     {
-        I item = getItemSetA().getItem(itemId);
-        getItemSetB().updateItem(itemId, item);
+        transfer(getItemSetA(), getItemSetB(), itemId, etagA, true);
         addToStatus(itemId, etagA);
+        record(itemId, SyncAction.UPDATED_ON_B);
     }
     
     private void updateOnA(String itemId, String etagB) throws Exception
     {
-        I item = getItemSetB().getItem(itemId);
-        getItemSetA().updateItem(itemId, item);
+        transfer(getItemSetB(), getItemSetA(), itemId, etagB, true);
         addToStatus(itemId, etagB);
+        record(itemId, SyncAction.UPDATED_ON_A);
+    }
+    
+    /**
+     * Copies an item with the same etag on the target side if possible. Otherwise, transfers the item.
+     *
+     * @param etag the etag of the item on the source side or {@code null} to read it from the source side if required.
+     */
+    private void transfer(ItemSet<I> source, ItemSet<I> target, String itemId, String etag, boolean existsOnTarget)
+            throws Exception
+    {
+        if(etagIndex != null && target instanceof CopyableItemSet)
+        {
+            String sourceEtag = etag == null ? getEtag(source, itemId) : etag;
+            String existingId = sourceEtag == null ? null : etagIndex.get(sourceEtag);
+            if(existingId != null && !existingId.equals(itemId) && isCopyable(target, existingId, sourceEtag))
+            {
+                ((CopyableItemSet<I>) target).copyFrom(existingId, itemId);
+                return;
+            }
+        }
+        
+        transferItem(source, target, itemId, existsOnTarget);
+    }
+    
+    /**
+     * @return whether the target side still contains the existing item with the given etag.
+     */
+    private boolean isCopyable(ItemSet<I> target, String existingId, String etag) throws Exception
+    {
+        return target.contains(existingId) && etag.equals(target.getEtag(existingId));
     }
     
     private boolean wasUpdatedOnA(String statusEtag, String etagA)
@@ -142,7 +342,7 @@ public class MutableItemSynchronization<I> extends Synchronization<I>
     
     private void resolveConflict(String itemId, String etagA, String etagB) throws Exception
     {
-        conflictResolver.setContext(itemId, etagA, etagB);
-        conflictResolver.resolve(itemId, etagA, etagB);
+        recordConflict(itemId);
+        conflictHandler.resolve(new Conflict<>(itemId, etagA, etagB, getItemSetA(), getItemSetB(), getStatus()));
     }
 }
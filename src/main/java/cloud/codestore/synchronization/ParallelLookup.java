@@ -0,0 +1,125 @@
+package cloud.codestore.synchronization;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes the same independent lookup, like {@link ItemSet#contains(String)} or {@link ItemSet#getEtag(String)},
+ * on both sides of a synchronization at the same time.
+ * <br/><br/>
+ * The lookup on side B is forked into the given {@link Executor} while the calling thread executes
+ * the lookup on side A. Afterwards, the calling thread joins the lookup on side B.
+ * So the latency of both lookups is the maximum instead of the sum of the single latencies.
+ * If the executor has not started the lookup on side B until then, the calling thread executes it itself.
+ * So the lookups never wait for a free thread of the executor, even if it also processes the items.
+ */
+final class ParallelLookup
+{
+    private ParallelLookup() {}
+    
+    /**
+     * Executes the given lookup on both {@link ItemSet}s.
+     *
+     * @param itemSetA the {@link ItemSet} of side A.
+     * @param itemSetB the {@link ItemSet} of side B.
+     * @param lookup the lookup which should be executed.
+     * @param executor the {@link Executor} which executes the lookup on side B
+     *                 or {@code null} to execute both lookups in the calling thread.
+     *
+     * @return the results of both lookups.
+     *
+     * @throws Exception if one of the lookups failed.
+     */
+    static <I, T> Result<T> lookup(ItemSet<I> itemSetA, ItemSet<I> itemSetB, Lookup<I, T> lookup, Executor executor)
+            throws Exception
+    {
+        if(executor == null)
+            return new Result<>(lookup.apply(itemSetA), lookup.apply(itemSetB));
+        
+        FutureTask<T> resultB = new FutureTask<>(() -> lookup.apply(itemSetB));
+        try
+        {
+            executor.execute(resultB);
+        }
+        catch(RejectedExecutionException exception)
+        {
+            // the lookup is executed by the calling thread
+        }
+        
+        T resultA;
+        try
+        {
+            resultA = lookup.apply(itemSetA);
+        }
+        catch(Exception exception)
+        {
+            resultB.cancel(true);
+            throw exception;
+        }
+        
+        // executes the lookup in the calling thread if it was not started by the executor yet
+        resultB.run();
+        return new Result<>(resultA, join(resultB));
+    }
+    
+    private static <T> T join(Future<T> future) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch(InterruptedException exception)
+        {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw exception;
+        }
+        catch(ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            if(cause instanceof Exception)
+                throw (Exception) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            
+            throw exception;
+        }
+    }
+    
+    /**
+     * A lookup which is executed on a single {@link ItemSet}.
+     */
+    @FunctionalInterface
+    interface Lookup<I, T>
+    {
+        T apply(ItemSet<I> itemSet) throws Exception;
+    }
+    
+    /**
+     * The results of a lookup on side A and side B.
+     */
+    static final class Result<T>
+    {
+        private final T resultA;
+        private final T resultB;
+        
+        Result(T resultA, T resultB)
+        {
+            this.resultA = resultA;
+            this.resultB = resultB;
+        }
+        
+        T getA()
+        {
+            return resultA;
+        }
+        
+        T getB()
+        {
+            return resultB;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cloud.codestore.synchronization;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A read-only view of item IDs which prefetches data for the next window of IDs while they are iterated.
+ * <br/><br/>
+ * As soon as the iteration reaches the end of a window, the next {@code windowSize} IDs are read from the underlying
+ * collection and passed to the prefetch function before the first of them is returned.
+ * So the prefetched data is always just ahead of the processed items.
+ */
+class PrefetchingItemIds extends AbstractCollection<String>
+{
+    private final Collection<String> itemIds;
+    private final int windowSize;
+    private final Consumer<List<String>> prefetch;
+    
+    /**
+     * @param itemIds the IDs of the items.
+     * @param windowSize the number of IDs which are prefetched at once.
+     * @param prefetch the function which prefetches the data of a window.
+     */
+    PrefetchingItemIds(Collection<String> itemIds, int windowSize, Consumer<List<String>> prefetch)
+    {
+        this.itemIds = itemIds;
+        this.windowSize = windowSize;
+        this.prefetch = prefetch;
+    }
+    
+    @Override
+    public int size()
+    {
+        return itemIds.size();
+    }
+    
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<>()
+        {
+            private final Iterator<String> source = itemIds.iterator();
+            private Iterator<String> window = Collections.emptyIterator();
+            
+            @Override
+            public boolean hasNext()
+            {
+                if(!window.hasNext() && source.hasNext())
+                {
+                    List<String> nextWindow = new ArrayList<>(windowSize);
+                    while(nextWindow.size() < windowSize && source.hasNext())
+                        nextWindow.add(source.next());
+                    
+                    prefetch.accept(nextWindow);
+                    window = nextWindow.iterator();
+                }
+                
+                return window.hasNext();
+            }
+            
+            @Override
+            public String next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                
+                return window.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package cloud.codestore.synchronization;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The aggregated progress which is passed to a {@link BatchProgressListener}.
+ */
+public final class ProgressBatch
+{
+    private final int numberOfItems;
+    private final int finishedItems;
+    private final int failedItems;
+    private final long totalFinishedItems;
+    private final long totalFailedItems;
+    private final Map<String, Throwable> failures;
+    
+    ProgressBatch(
+            int numberOfItems,
+            int finishedItems,
+            int failedItems,
+            long totalFinishedItems,
+            long totalFailedItems,
+            Map<String, Throwable> failures
+    )
+    {
+        this.numberOfItems = numberOfItems;
+        this.finishedItems = finishedItems;
+        this.failedItems = failedItems;
+        this.totalFinishedItems = totalFinishedItems;
+        this.totalFailedItems = totalFailedItems;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+    
+    /**
+     * @return the total number of items to be synchronized.
+     */
+    public int getNumberOfItems()
+    {
+        return numberOfItems;
+    }
+    
+    /**
+     * @return the number of items which were successfully synchronized since the last batch.
+     */
+    public int getFinishedItems()
+    {
+        return finishedItems;
+    }
+    
+    /**
+     * @return the number of items whose synchronization failed since the last batch.
+     */
+    public int getFailedItems()
+    {
+        return failedItems;
+    }
+    
+    /**
+     * @return the number of items which were successfully synchronized so far.
+     */
+    public long getTotalFinishedItems()
+    {
+        return totalFinishedItems;
+    }
+    
+    /**
+     * @return the number of items whose synchronization failed so far.
+     */
+    public long getTotalFailedItems()
+    {
+        return totalFailedItems;
+    }
+    
+    /**
+     * @return the IDs of the items whose synchronization failed since the last batch
+     *         mapped to the exception which caused the error.
+     */
+    public Map<String, Throwable> getFailures()
+    {
+        return failures;
+    }
+}
@@ -0,0 +1,78 @@
+package cloud.codestore.synchronization;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the entries of the {@link Status} which were changed during a synchronization run,
+ * so that they can be restored if the corresponding changes of a buffering {@link ItemSet} could not be written.
+ * <br/><br/>
+ * Only the first state of every changed item is kept, so the memory consumption depends on the number of changed items.
+ */
+class StatusSnapshot
+{
+    private final Map<String, Entry> previousEntries = new ConcurrentHashMap<>();
+    
+    /**
+     * @param itemId the ID of an item.
+     * @param previousEntry the state of the item in the status before it was synchronized.
+     * @param currentEntry the state of the item in the status after it was synchronized.
+     */
+    void track(String itemId, Entry previousEntry, Entry currentEntry)
+    {
+        if(!previousEntry.equals(currentEntry))
+            previousEntries.putIfAbsent(itemId, previousEntry);
+    }
+    
+    /**
+     * @param itemId the ID of an item.
+     *
+     * @return the state of the item in the status before the run or {@code null} if it was not changed.
+     */
+    Entry getPreviousEntry(String itemId)
+    {
+        return previousEntries.get(itemId);
+    }
+    
+    /**
+     * The state of a single item in the {@link Status}.
+     */
+    static final class Entry
+    {
+        private final boolean present;
+        private final String etag;
+        
+        Entry(boolean present, String etag)
+        {
+            this.present = present;
+            this.etag = etag;
+        }
+        
+        boolean isPresent()
+        {
+            return present;
+        }
+        
+        String getEtag()
+        {
+            return etag;
+        }
+        
+        @Override
+        public boolean equals(Object object)
+        {
+            if(!(object instanceof Entry))
+                return false;
+            
+            Entry other = (Entry) object;
+            return present == other.present && Objects.equals(etag, other.etag);
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(present, etag);
+        }
+    }
+}
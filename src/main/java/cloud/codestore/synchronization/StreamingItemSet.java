@@ -0,0 +1,54 @@
+package cloud.codestore.synchronization;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * An {@link ItemSet} which is able to transfer the raw content of its items as a stream of bytes.
+ * <br/><br/>
+ * If both sides of a synchronization implement this interface, items are copied from one side to the other
+ * by streaming their content instead of loading the whole item into memory via {@link #getItem(String)}.
+ * This is useful for large items like files.
+ *
+ * @param <I> the type of an item.
+ */
+public interface StreamingItemSet<I> extends ItemSet<I>
+{
+    /**
+     * Returns the size of the content of the item with the given ID.
+     *
+     * @param itemId the ID of an item.
+     *
+     * @return the number of bytes of the item or {@code -1} if the size is unknown.
+     *
+     * @throws Exception if the size could not be determined.
+     */
+    long getSize(String itemId) throws Exception;
+    
+    /**
+     * Opens a channel to read the content of the item with the given ID.
+     * The channel is closed by the synchronization as soon as the item has been transferred.
+     *
+     * @param itemId the ID of the item which should be read.
+     *
+     * @return a channel which provides the content of the corresponding item.
+     *
+     * @throws Exception if the item could not be opened.
+     */
+    ReadableByteChannel openRead(String itemId) throws Exception;
+    
+    /**
+     * Writes the content of the item with the given ID into this set.
+     * If the item already exists, it is replaced.
+     * <br/><br/>
+     * The channel should be read with a buffer of constant size (for example using
+     * {@link java.nio.channels.FileChannel#transferFrom}) so that the memory consumption
+     * does not depend on the size of the item.
+     *
+     * @param itemId the ID of the item.
+     * @param channel the channel which provides the content of the item.
+     * @param size the number of bytes of the item or {@code -1} if the size is unknown.
+     *
+     * @throws Exception if the item could not be written.
+     */
+    void write(String itemId, ReadableByteChannel channel, long size) throws Exception;
+}
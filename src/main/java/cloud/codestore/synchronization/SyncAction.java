@@ -0,0 +1,24 @@
+package cloud.codestore.synchronization;
+
+/**
+ * The changes the synchronization applies to the sides A and B.
+ */
+public enum SyncAction
+{
+    /** An item was created on side A. */
+    CREATED_ON_A,
+    /** An item was created on side B. */
+    CREATED_ON_B,
+    /** An item was updated on side A. */
+    UPDATED_ON_A,
+    /** An item was updated on side B. */
+    UPDATED_ON_B,
+    /** An item was deleted from side A. */
+    DELETED_ON_A,
+    /** An item was deleted from side B. */
+    DELETED_ON_B,
+    /** An item was moved to a new ID on side A. */
+    MOVED_ON_A,
+    /** An item was moved to a new ID on side B. */
+    MOVED_ON_B
+}
@@ -0,0 +1,181 @@
+package cloud.codestore.synchronization;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a synchronization run, which is returned by {@link Synchronization#synchronize()}.
+ * <br/><br/>
+ * It contains how often every {@link SyncAction} was executed, the IDs of the changed, conflicting and failed items
+ * and the duration of the run. This allows to decide whether the {@link Status} should be saved,
+ * a retry should be scheduled or an alert should be raised, without implementing a {@link ProgressListener}.
+ */
+public final class SyncResult
+{
+    private final long[] counts;
+    private final List<Collection<String>> changedItems;
+    private final Collection<String> conflictingItems;
+    private final Map<String, Exception> failures;
+    private final long finishedItems;
+    private final long transferredBytes;
+    private final Duration duration;
+    private final boolean canceled;
+    private final boolean timedOut;
+    
+    SyncResult(
+            long[] counts,
+            List<Collection<String>> changedItems,
+            Collection<String> conflictingItems,
+            Map<String, Exception> failures,
+            long finishedItems,
+            long transferredBytes,
+            Duration duration,
+            boolean canceled,
+            boolean timedOut
+    )
+    {
+        this.counts = counts;
+        this.changedItems = changedItems;
+        this.conflictingItems = conflictingItems;
+        this.failures = failures;
+        this.finishedItems = finishedItems;
+        this.transferredBytes = transferredBytes;
+        this.duration = duration;
+        this.canceled = canceled;
+        this.timedOut = timedOut;
+    }
+    
+    /**
+     * @param action a {@link SyncAction}.
+     *
+     * @return how often the given action was executed.
+     */
+    public long getCount(SyncAction action)
+    {
+        return counts[action.ordinal()];
+    }
+    
+    /**
+     * @param action a {@link SyncAction}.
+     *
+     * @return the IDs of the items to which the given action was applied.
+     */
+    public Collection<String> getChangedItems(SyncAction action)
+    {
+        return changedItems.get(action.ordinal());
+    }
+    
+    /**
+     * @return the IDs of all items which were created, updated, deleted or moved on any side.
+     */
+    public Collection<String> getChangedItems()
+    {
+        List<String> result = new ArrayList<>();
+        for(Collection<String> itemIds : changedItems)
+            result.addAll(itemIds);
+        
+        return Collections.unmodifiableList(result);
+    }
+    
+    /**
+     * @return the IDs of the items which were in conflict, regardless of whether the conflict could be resolved.
+     */
+    public Collection<String> getConflictingItems()
+    {
+        return conflictingItems;
+    }
+    
+    /**
+     * @return the IDs of the items whose synchronization failed mapped to the corresponding exception.
+     */
+    public Map<String, Exception> getFailures()
+    {
+        return failures;
+    }
+    
+    /**
+     * @return the number of items which were successfully synchronized.
+     */
+    public long getFinishedItems()
+    {
+        return finishedItems;
+    }
+    
+    /**
+     * @return the number of items whose synchronization failed.
+     */
+    public long getFailedItems()
+    {
+        return failures.size();
+    }
+    
+    /**
+     * @return the number of conflicts which occurred, regardless of whether they could be resolved.
+     */
+    public long getConflicts()
+    {
+        return conflictingItems.size();
+    }
+    
+    /**
+     * Only items which are transferred by a {@link StreamingItemSet} report their size.
+     *
+     * @return the number of bytes which were transferred.
+     */
+    public long getTransferredBytes()
+    {
+        return transferredBytes;
+    }
+    
+    /**
+     * @return the total time of the synchronization run.
+     */
+    public Duration getDuration()
+    {
+        return duration;
+    }
+    
+    /**
+     * @return whether the synchronization was canceled.
+     */
+    public boolean isCanceled()
+    {
+        return canceled;
+    }
+    
+    /**
+     * @return whether the synchronization was stopped because the timeout has elapsed.
+     *         In this case, items may still be in progress, so the {@link Status} should not be saved.
+     */
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+    
+    /**
+     * @return whether all items were processed, which means the synchronization was neither canceled nor timed out.
+     */
+    public boolean isComplete()
+    {
+        return !canceled && !timedOut;
+    }
+    
+    /**
+     * @return whether the synchronization of at least one item failed.
+     */
+    public boolean hasFailures()
+    {
+        return !failures.isEmpty();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "SyncResult (finished: " + finishedItems + ", failed: " + failures.size() +
+               ", conflicts: " + conflictingItems.size() + ", duration: " + duration + ")";
+    }
+}
@@ -0,0 +1,321 @@
+package cloud.codestore.synchronization;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live statistics of a synchronization run.
+ * The values are updated while the synchronization is running and can be read by any thread at any time.
+ * <br/><br/>
+ * All counters are {@link LongAdder}s, so updating them from many threads is cheap.
+ * The values of a running synchronization are therefore not an atomic snapshot.
+ * <br/><br/>
+ * Failed writes are additionally counted per side. A transfer or a buffered change which could not be written
+ * is counted for the side it should have been written to. Failures which can not be attributed to a side,
+ * for example because an etag could not be read, are only counted as failed items.
+ * <br/><br/>
+ * The IDs of the changed, conflicting and failed items are collected as well,
+ * so a {@link SyncResult} can be created as soon as the synchronization has been finished.
+ */
+public class SyncStatistics
+{
+    private static final double LATENCY_SMOOTHING_FACTOR = 0.1;
+    
+    private final int numberOfItems;
+    private final long startTime;
+    private volatile long endTime;
+    
+    private final LongAdder finishedItems = new LongAdder();
+    private final LongAdder failedItems = new LongAdder();
+    private final LongAdder failedWritesOnA = new LongAdder();
+    private final LongAdder failedWritesOnB = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder transferredBytes = new LongAdder();
+    private final LongAdder failedEtagPrefetches = new LongAdder();
+    private final LongAdder[] actions = new LongAdder[SyncAction.values().length];
+    private final ItemIdCollector[] changedItems = new ItemIdCollector[SyncAction.values().length];
+    private final ItemIdCollector conflictingItems = new ItemIdCollector();
+    private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+    private final AtomicLong averageLatency = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+    
+    SyncStatistics()
+    {
+        this(0);
+    }
+    
+    SyncStatistics(int numberOfItems)
+    {
+        this.numberOfItems = numberOfItems;
+        this.startTime = System.nanoTime();
+        for(int i = 0; i < actions.length; i++)
+        {
+            actions[i] = new LongAdder();
+            changedItems[i] = new ItemIdCollector();
+        }
+    }
+    
+    /**
+     * @return the total number of items to be synchronized.
+     */
+    public int getNumberOfItems()
+    {
+        return numberOfItems;
+    }
+    
+    /**
+     * @return the number of items which were successfully synchronized.
+     */
+    public long getFinishedItems()
+    {
+        return finishedItems.sum();
+    }
+    
+    /**
+     * @return the number of items whose synchronization failed.
+     */
+    public long getFailedItems()
+    {
+        return failedItems.sum();
+    }
+    
+    /**
+     * @return the number of items which could not be transferred to side A or whose buffered changes
+     *         could not be written to side A.
+     */
+    public long getFailedWritesOnA()
+    {
+        return failedWritesOnA.sum();
+    }
+    
+    /**
+     * @return the number of items which could not be transferred to side B or whose buffered changes
+     *         could not be written to side B.
+     */
+    public long getFailedWritesOnB()
+    {
+        return failedWritesOnB.sum();
+    }
+    
+    /**
+     * @return the number of items which were either synchronized successfully or whose synchronization failed.
+     */
+    public long getProcessedItems()
+    {
+        return getFinishedItems() + getFailedItems();
+    }
+    
+    /**
+     * @return the number of conflicts which occurred, regardless of whether they could be resolved.
+     */
+    public long getConflicts()
+    {
+        return conflicts.sum();
+    }
+    
+    /**
+     * Only items which are transferred by a {@link StreamingItemSet} report their size.
+     *
+     * @return the number of bytes which were transferred.
+     */
+    public long getTransferredBytes()
+    {
+        return transferredBytes.sum();
+    }
+    
+    /**
+     * The etags of the items of a failed chunk are read individually instead.
+     *
+     * @return the number of chunks whose etags could not be prefetched from a {@link BulkEtagItemSet}.
+     */
+    public long getFailedEtagPrefetches()
+    {
+        return failedEtagPrefetches.sum();
+    }
+    
+    /**
+     * @param action a {@link SyncAction}.
+     *
+     * @return how often the given action was executed.
+     */
+    public long getCount(SyncAction action)
+    {
+        return actions[action.ordinal()].sum();
+    }
+    
+    /**
+     * @return whether the synchronization has been finished.
+     */
+    public boolean isFinished()
+    {
+        return endTime != 0;
+    }
+    
+    /**
+     * @return the time since the synchronization has been started or the total time if it has been finished.
+     */
+    public Duration getDuration()
+    {
+        long end = isFinished() ? endTime : System.nanoTime();
+        return Duration.ofNanos(end - startTime);
+    }
+    
+    /**
+     * @return the average number of items which were processed per second.
+     */
+    public double getItemsPerSecond()
+    {
+        return perSecond(getProcessedItems());
+    }
+    
+    /**
+     * @return the average number of bytes which were transferred per second.
+     */
+    public double getBytesPerSecond()
+    {
+        return perSecond(getTransferredBytes());
+    }
+    
+    /**
+     * The latency is an exponential moving average, so it reflects the recently processed items.
+     *
+     * @return the average time to synchronize a single item or {@link Duration#ZERO} if no item was processed yet.
+     */
+    public Duration getAverageItemLatency()
+    {
+        double latency = Double.longBitsToDouble(averageLatency.get());
+        return Double.isNaN(latency) ? Duration.ZERO : Duration.ofNanos((long) latency);
+    }
+    
+    /**
+     * @return the estimated time until all items are processed, based on the average throughput so far,
+     *         or {@code null} if it cannot be estimated yet.
+     */
+    public Duration getEstimatedTimeRemaining()
+    {
+        if(isFinished())
+            return Duration.ZERO;
+        
+        double itemsPerSecond = getItemsPerSecond();
+        if(itemsPerSecond <= 0)
+            return null;
+        
+        long remainingItems = Math.max(0, numberOfItems - getProcessedItems());
+        return Duration.ofNanos((long) (remainingItems / itemsPerSecond * 1_000_000_000));
+    }
+    
+    void etagPrefetchFailed()
+    {
+        failedEtagPrefetches.increment();
+    }
+    
+    void itemFinished(long latencyNanos)
+    {
+        finishedItems.increment();
+        updateLatency(latencyNanos);
+    }
+    
+    void itemFailed(String itemId, Exception exception, long latencyNanos)
+    {
+        failedItems.increment();
+        failures.put(itemId, exception);
+        updateLatency(latencyNanos);
+    }
+    
+    void writeFailed(boolean sideA)
+    {
+        if(sideA)
+            failedWritesOnA.increment();
+        else
+            failedWritesOnB.increment();
+    }
+    
+    /**
+     * Records an item which was processed successfully but whose changes could not be written afterwards.
+     */
+    void flushFailed(String itemId, Exception exception, boolean sideA)
+    {
+        writeFailed(sideA);
+        if(failures.put(itemId, exception) == null)
+        {
+            finishedItems.decrement();
+            failedItems.increment();
+        }
+    }
+    
+    void conflict(String itemId)
+    {
+        conflicts.increment();
+        conflictingItems.add(itemId);
+    }
+    
+    void bytesTransferred(long bytes)
+    {
+        if(bytes > 0)
+            transferredBytes.add(bytes);
+    }
+    
+    void record(String itemId, SyncAction action)
+    {
+        actions[action.ordinal()].increment();
+        changedItems[action.ordinal()].add(itemId);
+    }
+    
+    void finish()
+    {
+        endTime = System.nanoTime();
+    }
+    
+    /**
+     * Creates the result of the finished synchronization.
+     */
+    SyncResult toResult(boolean canceled, boolean timedOut)
+    {
+        long[] counts = new long[actions.length];
+        List<Collection<String>> changedItemIds = new ArrayList<>(changedItems.length);
+        for(int i = 0; i < actions.length; i++)
+        {
+            counts[i] = actions[i].sum();
+            changedItemIds.add(changedItems[i].toCollection());
+        }
+        
+        return new SyncResult(counts,
+                              changedItemIds,
+                              conflictingItems.toCollection(),
+                              Collections.unmodifiableMap(new HashMap<>(failures)),
+                              getFinishedItems(),
+                              getTransferredBytes(),
+                              getDuration(),
+                              canceled,
+                              timedOut);
+    }
+    
+    private void updateLatency(long latencyNanos)
+    {
+        long current;
+        long updated;
+        do
+        {
+            current = averageLatency.get();
+            double average = Double.longBitsToDouble(current);
+            double newAverage = Double.isNaN(average) ?
+                                latencyNanos :
+                                average + LATENCY_SMOOTHING_FACTOR * (latencyNanos - average);
+            updated = Double.doubleToLongBits(newAverage);
+        }
+        while(!averageLatency.compareAndSet(current, updated));
+    }
+    
+    private double perSecond(long value)
+    {
+        double seconds = getDuration().toNanos() / 1_000_000_000d;
+        return seconds > 0 ? value / seconds : 0;
+    }
+}
@@ -1,9 +1,23 @@
 package cloud.codestore.synchronization;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Abstract base class for synchronizing mutable or immutable items.
@@ -11,13 +25,26 @@ import java.util.Set;
  */
 public abstract class Synchronization<I>
 {
-    private final ItemSet<I> itemSetA;
-    private final ItemSet<I> itemSetB;
+    private final List<ItemSet<I>> itemSets;
     private final Status status;
     
     private ProgressListener progressListener = new DefaultProgressListener();
     private int threadCount;
+    private Executor executor;
+    private Duration timeout;
+    private int progressBufferSize;
+    private Comparator<String> priority;
+    private ItemPartition partition;
+    private boolean lazyItemIdUnion;
+    private Path externalItemIdDirectory;
+    private int externalItemIdRunSize;
+    private boolean parallelLookups;
+    private volatile Executor lookupExecutor;
+    private int etagPrefetchSize;
+    private volatile EtagTable etagTable = new EtagTable();
+    private volatile StatusSnapshot statusSnapshot;
     private ItemProcessor itemProcessor;
+    private volatile SyncStatistics statistics = new SyncStatistics();
     
     /**
      * @param itemSetA an {@link ItemSet} which represents the items on side A.
@@ -30,40 +57,217 @@ public abstract class Synchronization<I>
         Objects.requireNonNull(itemSetB, "The itemSet B must not be null");
         Objects.requireNonNull(status, "The status must not be null");
         
-        this.itemSetA = itemSetA;
-        this.itemSetB = itemSetB;
+        this.itemSets = List.of(itemSetA, itemSetB);
+        this.status = status;
+    }
+    
+    /**
+     * @param itemSets the {@link ItemSet}s which should be synchronized with each other.
+     * @param status the {@link Status} which represents the items which were present after the last synchronization.
+     */
+    Synchronization(List<ItemSet<I>> itemSets, Status status)
+    {
+        Objects.requireNonNull(itemSets, "The itemSets must not be null");
+        Objects.requireNonNull(status, "The status must not be null");
+        if(itemSets.size() < 2)
+            throw new IllegalArgumentException("There must be at least two itemSets");
+        
+        this.itemSets = List.copyOf(itemSets);
         this.status = status;
     }
     
     /**
      * Executes the synchronization of the provided {@link ItemSet}s.
+     * {@link ItemSet}s which implement {@link Flushable} are flushed before this method returns, unless the timeout elapsed.
+     *
+     * @return the {@link SyncResult} of the synchronization.
      */
-    public void synchronize()
+    public SyncResult synchronize()
     {
-        synchronize(getAllItemIds());
+        if(externalItemIdDirectory != null)
+            return synchronizeExternalItemIdUnion();
+        if(lazyItemIdUnion)
+            return synchronizeAll(new ItemIdUnion(itemSets, status, this::isInPartition));
+        
+        return synchronizeAll(getAllItemIds());
     }
     
     /**
      * Executes the synchronization of a single item.
      *
      * @param itemId the Id of the item to synchronize.
+     *
+     * @return the {@link SyncResult} of the synchronization.
      */
-    public void synchronize(String itemId)
+    public SyncResult synchronize(String itemId)
     {
-        synchronize(Collections.singleton(itemId));
+        return synchronize(Collections.singleton(itemId));
     }
     
     /**
      * Synchronizes the items specified by the given IDs.
      *
      * @param itemIds the IDs of the items which should be synchronized.
+     *
+     * @return the {@link SyncResult} of the synchronization.
      */
-    public void synchronize(Set<String> itemIds)
+    public SyncResult synchronize(Set<String> itemIds)
     {
         Objects.requireNonNull(itemIds);
-        createItemProcessor();
-        progressListener.numberOfItems(itemIds.size());
-        itemProcessor.process(itemIds);
+        return synchronizeAll(itemIds);
+    }
+    
+    private SyncResult synchronizeExternalItemIdUnion()
+    {
+        try(ExternalItemIdUnion itemIds = ExternalItemIdUnion.create(itemSets,
+                                                                     status,
+                                                                     this::isInPartition,
+                                                                     externalItemIdDirectory,
+                                                                     externalItemIdRunSize))
+        {
+            return synchronizeAll(itemIds);
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+    
+    private SyncResult synchronizeAll(Collection<String> itemIds)
+    {
+        SyncStatistics runStatistics = new SyncStatistics(itemIds.size());
+        statistics = runStatistics;
+        ProgressListener runProgressListener = createProgressListener();
+        createItemProcessor(runProgressListener);
+        ExecutorService ownLookupExecutorService = parallelLookups && executor == null ? createLookupExecutorService() : null;
+        lookupExecutor = ownLookupExecutorService == null ? executor : ownLookupExecutorService;
+        try
+        {
+            statusSnapshot = hasFlushableItemSets() ? new StatusSnapshot() : null;
+            Collection<String> processedItemIds = prefetchEtags(itemIds);
+            prepare(itemIds);
+            runProgressListener.numberOfItems(itemIds.size());
+            itemProcessor.process(processedItemIds);
+            if(!itemProcessor.isTimedOut())
+                flushItemSets(runProgressListener);
+        }
+        finally
+        {
+            if(ownLookupExecutorService != null)
+                ownLookupExecutorService.shutdownNow();
+            
+            lookupExecutor = null;
+            statusSnapshot = null;
+            etagTable = new EtagTable();
+            runStatistics.finish();
+            if(runProgressListener instanceof AsyncProgressListener)
+                ((AsyncProgressListener) runProgressListener).close();
+            if(progressListener instanceof BatchingProgressListener)
+                ((BatchingProgressListener) progressListener).flush();
+        }
+        
+        if(runProgressListener instanceof AsyncProgressListener)
+            ((AsyncProgressListener) runProgressListener).rethrowFailure();
+        
+        return runStatistics.toResult(itemProcessor.isCanceled(), itemProcessor.isTimedOut());
+    }
+    
+    /**
+     * Flushes all {@link ItemSet}s which buffer their changes, so the {@link Status} can be saved afterwards.
+     * If the changes of an item could not be written, the entry of the item in the status is restored to its state
+     * before the run, so that the next synchronization detects the same change again,
+     * and the failure is reported to the {@link ProgressListener}.
+     *
+     * @throws UncheckedIOException if an {@link ItemSet} could not be flushed at all.
+     */
+    private void flushItemSets(ProgressListener progressListener)
+    {
+        for(ItemSet<I> itemSet : itemSets)
+        {
+            if(!(itemSet instanceof Flushable))
+                continue;
+            
+            try
+            {
+                ((Flushable) itemSet).flush();
+            }
+            catch(FlushException exception)
+            {
+                for(Map.Entry<String, Exception> failure : exception.getFailures().entrySet())
+                {
+                    restoreStatus(failure.getKey());
+                    statistics.flushFailed(failure.getKey(), failure.getValue(), itemSet == getItemSetA());
+                    progressListener.synchronizationFailed(failure.getKey(), failure.getValue());
+                }
+            }
+            catch(IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+    
+    private boolean hasFlushableItemSets()
+    {
+        return itemSets.stream().anyMatch(itemSet -> itemSet instanceof Flushable);
+    }
+    
+    private void restoreStatus(String itemId)
+    {
+        StatusSnapshot.Entry previousEntry = statusSnapshot.getPreviousEntry(itemId);
+        if(previousEntry == null)
+            return;
+        
+        if(previousEntry.isPresent())
+            putStatus(itemId, previousEntry.getEtag());
+        else
+            status.delete(itemId);
+    }
+    
+    /**
+     * Returns the state of the given item in the {@link Status} if it needs to be tracked,
+     * because some {@link ItemSet}s buffer their changes.
+     *
+     * @param itemId the ID of an item.
+     *
+     * @return the state of the item in the status or {@code null} if the status is not tracked.
+     */
+    StatusSnapshot.Entry readStatus(String itemId)
+    {
+        if(statusSnapshot == null)
+            return null;
+        
+        boolean present = status.contains(itemId);
+        return new StatusSnapshot.Entry(present, present ? readStatusEtag(itemId) : null);
+    }
+    
+    /**
+     * Remembers the previous state of the given item in the {@link Status} if it was changed by its synchronization.
+     *
+     * @param itemId the ID of an item.
+     * @param previousEntry the state returned by {@link #readStatus(String)} before the item was synchronized.
+     */
+    void trackStatus(String itemId, StatusSnapshot.Entry previousEntry)
+    {
+        StatusSnapshot snapshot = statusSnapshot;
+        if(snapshot != null && previousEntry != null)
+            snapshot.track(itemId, previousEntry, readStatus(itemId));
+    }
+    
+    /**
+     * @return the etag of the given item in the {@link Status}.
+     */
+    String readStatusEtag(String itemId)
+    {
+        return status.getEtag(itemId);
+    }
+    
+    /**
+     * Puts the given item with the given etag into the {@link Status}.
+     */
+    void putStatus(String itemId, String etag)
+    {
+        status.put(itemId, etag);
     }
     
     /**
@@ -82,6 +286,44 @@ public abstract class Synchronization<I>
         return itemProcessor.isCanceled();
     }
     
+    /**
+     * Returns the statistics of the current synchronization run or of the last one if no synchronization is running.
+     * The returned object is updated live, so it can be polled by another thread to display throughput and ETA.
+     * Every call of {@link #synchronize()} creates a new {@link SyncStatistics} object.
+     *
+     * @return the {@link SyncStatistics} of the current or last synchronization run.
+     */
+    public SyncStatistics getStatistics()
+    {
+        return statistics;
+    }
+    
+    /**
+     * @return whether the synchronization was stopped because the timeout has elapsed.
+     *         In this case, items may still be in progress, so the {@link Status} should not be saved.
+     */
+    public boolean isTimedOut()
+    {
+        return itemProcessor.isTimedOut();
+    }
+    
+    /**
+     * Sets the maximum duration of a synchronization run.
+     * By default, {@link #synchronize()} waits until all items have been processed, no matter how long it takes.
+     * <br/>
+     * If the timeout elapses, no further items are started and {@link #synchronize()} returns immediately.
+     * Running items are not waited for. If the synchronization created its own thread pool, its threads are interrupted.
+     * {@link ItemSet}s which implement {@link Flushable} are not flushed either, since a flush has no deadline.
+     * Their buffered changes are still written in the background.
+     * Use {@link #isTimedOut()} to check whether the synchronization was stopped by the timeout.
+     *
+     * @param timeout the maximum duration of a synchronization run or {@code null} to wait for all items.
+     */
+    public void setTimeout(Duration timeout)
+    {
+        this.timeout = timeout;
+    }
+    
     /**
      * @param progressListener a {@link ProgressListener} which should be called when the synchronization
      *         of an item was started of finished.
@@ -91,11 +333,31 @@ public abstract class Synchronization<I>
         this.progressListener = progressListener;
     }
     
+    /**
+     * Sets a {@link BatchProgressListener} which receives aggregated progress updates
+     * every {@code batchSize} items or every {@code interval} milliseconds, whatever comes first.
+     * It replaces the current {@link ProgressListener}.
+     *
+     * @param batchProgressListener a {@link BatchProgressListener} which should be called with the aggregated progress.
+     * @param batchSize the number of processed items after which the listener is called.
+     * @param interval the number of milliseconds after which the listener is called.
+     */
+    public void setProgressListener(BatchProgressListener batchProgressListener, int batchSize, long interval)
+    {
+        Objects.requireNonNull(batchProgressListener);
+        this.progressListener = new BatchingProgressListener(batchProgressListener, batchSize, interval);
+    }
+    
     /**
      * @param conflictResolver the {@link ConflictResolver} which should be called in case of a conflict.
      */
     public void setConflictResolver(ConflictResolver<I> conflictResolver) {}
     
+    /**
+     * @param conflictHandler the {@link ConflictHandler} which should be called in case of a conflict.
+     */
+    public void setConflictHandler(ConflictHandler<I> conflictHandler) {}
+    
     /**
      * Sets the number of threads to use for the synchronization.
      * By default, this value is 0 which means, the synchronization is executed synchronously.
@@ -112,31 +374,268 @@ public abstract class Synchronization<I>
         this.threadCount = threadCount;
     }
     
+    /**
+     * Sets the {@link Executor} which processes the items if the thread count is greater than 0.
+     * By default, every call of {@link #synchronize()} creates and shuts down its own thread pool.
+     * A long-lived executor avoids this overhead, for example if single items are synchronized frequently.
+     * <br/>
+     * The thread count still limits the number of items which are processed at the same time.
+     * The executor is never shut down by the synchronization.
+     *
+     * @param executor the {@link Executor} to process the items or {@code null} to create a thread pool per run.
+     */
+    public void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+    
+    /**
+     * Enables the asynchronous delivery of the progress events.
+     * If the buffer size is greater than 0, the threads which synchronize the items do not call the
+     * {@link ProgressListener} directly. Instead, they publish the events into a lock-free ring buffer of the given size.
+     * The events are delivered one after another in the order they were published, by a dispatcher task
+     * which runs on the {@link #setExecutor(Executor) executor} or on a dispatcher thread of the run.
+     * So a slow {@link ProgressListener} does not slow down the synchronization and does not need to be thread safe.
+     * If the ring buffer is full and no events are being delivered, the synchronizing threads deliver them themselves.
+     * <br/>
+     * {@link #synchronize()} returns as soon as all events have been delivered.
+     * If the {@link ProgressListener} threw an exception, the first one is thrown by {@link #synchronize()}
+     * after all events have been delivered.
+     * By default, this value is 0 which means, the {@link ProgressListener} is called directly.
+     *
+     * @param progressBufferSize the number of events the ring buffer can hold or 0 to disable the asynchronous delivery.
+     */
+    public void setProgressBufferSize(int progressBufferSize)
+    {
+        this.progressBufferSize = progressBufferSize;
+    }
+    
+    /**
+     * Sets the order in which the items are synchronized.
+     * By default, the items are processed in no particular order.
+     * <br/>
+     * The comparator is called frequently, so it should not load any data itself.
+     * Information like the modification date of the items should be collected before the synchronization.
+     *
+     * @param priority a {@link Comparator} which sorts the IDs of the items which should be synchronized first
+     *         to the beginning, or {@code null} to process the items in no particular order.
+     */
+    public void setPriority(Comparator<String> priority)
+    {
+        this.priority = priority;
+    }
+    
+    /**
+     * Restricts the synchronization to the items of the given partition.
+     * This allows to split the synchronization of a large number of items into several synchronizations
+     * which are executed by separate threads, JVMs or nodes. Each of them should use its own {@link Status}.
+     * <br/>
+     * The partition only applies to {@link #synchronize()}.
+     * Items which are explicitly passed to {@link #synchronize(Set)} are always synchronized.
+     *
+     * @param partition the partition to synchronize or {@code null} to synchronize all items.
+     */
+    public void setPartition(ItemPartition partition)
+    {
+        this.partition = partition;
+    }
+    
+    /**
+     * Enables the lazy iteration over the IDs of all items.
+     * By default, {@link #synchronize()} copies the IDs of all {@link ItemSet}s and the {@link Status}
+     * into a new set before the synchronization starts. If the lazy iteration is enabled, the IDs are read
+     * directly from the sets returned by {@code getItemIds()} and duplicates are skipped by calling {@code contains()}.
+     * This avoids the allocation of a combined set, which is significant for a large number of items.
+     * <br/>
+     * Since the items are synchronized while the IDs are iterated, the sets returned by {@code getItemIds()}
+     * must either be snapshots or tolerate concurrent modification, like the key set of a
+     * {@link java.util.concurrent.ConcurrentHashMap}. Also, {@code contains()} should be cheap.
+     * <br/>
+     * The number of items which is passed to {@link ProgressListener#numberOfItems(int)} and reported by the
+     * {@link SyncStatistics} is the sum of the sizes of all sets, which is an upper bound of the actual number.
+     *
+     * @param lazyItemIdUnion whether the IDs of all items should be iterated lazily.
+     */
+    public void setLazyItemIdUnion(boolean lazyItemIdUnion)
+    {
+        this.lazyItemIdUnion = lazyItemIdUnion;
+    }
+    
+    /**
+     * Enables the concurrent lookup of both sides for every item.
+     * By default, the synchronization of an item calls {@code contains()} and {@code getEtag()}
+     * on side A and side B one after the other. If the parallel lookups are enabled, the lookup on side B
+     * is executed by a separate thread while the lookup on side A is executed, so the latency of both
+     * lookups does not add up. This is useful if both sides are remote and the lookups have a high latency.
+     * <br/>
+     * The lookups on side B are executed by the {@link Executor} which is set by {@link #setExecutor(Executor)}.
+     * If no executor is set, every run creates and shuts down its own thread pool for the lookups.
+     * If the executor does not start a lookup in time, the thread which synchronizes the item executes it itself.
+     * Etags which were prefetched are never looked up in parallel.
+     * <br/>
+     * Note that if the parallel lookups are enabled, both {@link ItemSet}s must be thread safe!
+     *
+     * @param parallelLookups whether both sides should be looked up concurrently.
+     */
+    public void setParallelLookups(boolean parallelLookups)
+    {
+        this.parallelLookups = parallelLookups;
+    }
+    
+    /**
+     * Enables the prefetch of the etags of all items.
+     * By default, the etag of every item is read by a separate call of {@link ItemSet#getEtag(String)}.
+     * <br/>
+     * If the prefetch size is greater than 0, the etags are read from every {@link BulkEtagItemSet} in chunks
+     * of the given size, just before the items of the chunk are processed. Only the etags of the current
+     * and the previous chunk are kept in memory. {@link ItemSet}s which do not implement {@link BulkEtagItemSet}
+     * and items whose etags could not be prefetched are still looked up individually.
+     * The number of failed chunks is reported by {@link SyncStatistics#getFailedEtagPrefetches()}.
+     *
+     * @param etagPrefetchSize the number of items whose etags are read at once or 0 to disable the prefetch.
+     */
+    public void setEtagPrefetchSize(int etagPrefetchSize)
+    {
+        this.etagPrefetchSize = etagPrefetchSize;
+    }
+    
+    /**
+     * Enables the external sorting of the IDs of all items.
+     * By default, {@link #synchronize()} keeps the IDs of all items in memory.
+     * If the {@link ItemSet}s and the {@link Status} together contain more IDs than fit into memory,
+     * the IDs can be sorted on disk instead.
+     * <br/>
+     * The IDs of every source are read by {@code streamItemIds()}. At most {@code runSize} IDs are sorted in memory
+     * and written into a temporary file in the given directory. The temporary files are then merged into a single
+     * sorted file without duplicates, from which the IDs are read while the items are synchronized.
+     * The temporary files are deleted after the synchronization. This setting takes precedence over
+     * {@link #setLazyItemIdUnion(boolean)}. Note that a priority requires all IDs to be kept in memory.
+     *
+     * @param directory the directory for the temporary files or {@code null} to keep the IDs in memory.
+     * @param runSize the maximum number of IDs which are sorted in memory at once.
+     */
+    public void setExternalItemIdUnion(Path directory, int runSize)
+    {
+        if(directory != null && runSize <= 0)
+            throw new IllegalArgumentException("The run size must be greater than 0");
+        
+        this.externalItemIdDirectory = directory;
+        this.externalItemIdRunSize = runSize;
+    }
+    
     private Set<String> getAllItemIds()
     {
         Set<String> result = new HashSet<>();
-        result.addAll(getItemSetA().getItemIds());
-        result.addAll(getItemSetB().getItemIds());
-        result.addAll(getStatus().getItemIds());
+        for(ItemSet<I> itemSet : itemSets)
+            addItemIds(result, itemSet.getItemIds());
+        
+        addItemIds(result, getStatus().getItemIds());
         return result;
     }
     
-    private void createItemProcessor()
+    private void addItemIds(Set<String> result, Set<String> itemIds)
+    {
+        if(partition == null)
+        {
+            result.addAll(itemIds);
+            return;
+        }
+        
+        for(String itemId : itemIds)
+            if(partition.contains(itemId))
+                result.add(itemId);
+    }
+    
+    private boolean isInPartition(String itemId)
+    {
+        return partition == null || partition.contains(itemId);
+    }
+    
+    /**
+     * @return a view of the given item IDs which prefetches the etags of the next chunk while it is iterated
+     *         or the given item IDs if the prefetch is disabled.
+     */
+    private Collection<String> prefetchEtags(Collection<String> itemIds)
+    {
+        List<ItemSet<I>> bulkEtagItemSets = new ArrayList<>();
+        for(ItemSet<I> itemSet : itemSets)
+            if(itemSet instanceof BulkEtagItemSet)
+                bulkEtagItemSets.add(itemSet);
+        
+        if(etagPrefetchSize <= 0 || bulkEtagItemSets.isEmpty())
+            return itemIds;
+        
+        // the items are ordered here, so the etags are prefetched in the order in which the items are processed
+        Collection<String> orderedItemIds = itemProcessor.prioritize(itemIds);
+        itemProcessor.setPriority(null);
+        
+        EtagTable table = new EtagTable(bulkEtagItemSets);
+        etagTable = table;
+        return new PrefetchingItemIds(orderedItemIds, etagPrefetchSize, chunk -> prefetchEtags(table, chunk));
+    }
+    
+    private void prefetchEtags(EtagTable table, List<String> itemIds)
+    {
+        table.startWindow(itemIds);
+        for(ItemSet<I> itemSet : itemSets)
+        {
+            if(!(itemSet instanceof BulkEtagItemSet))
+                continue;
+            
+            try
+            {
+                table.put(itemSet, ((BulkEtagItemSet<I>) itemSet).getEtags(itemIds));
+            }
+            catch(Exception exception)
+            {
+                // the etags of these items are read individually
+                statistics.etagPrefetchFailed();
+            }
+        }
+    }
+    
+    private static ExecutorService createLookupExecutorService()
+    {
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "item-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private ProgressListener createProgressListener()
+    {
+        if(progressBufferSize > 0)
+            return new AsyncProgressListener(progressListener, progressBufferSize, executor);
+        
+        return progressListener;
+    }
+    
+    private void createItemProcessor(ProgressListener progressListener)
     {
         if(threadCount <= 0)
             itemProcessor = new DefaultItemProcessor(this, progressListener);
         else
-            itemProcessor = new ConcurrentItemProcessor(this, progressListener, threadCount);
+            itemProcessor = new ConcurrentItemProcessor(this, progressListener, threadCount, executor);
+        
+        itemProcessor.setPriority(priority);
+        itemProcessor.setStatistics(statistics);
+        itemProcessor.setTimeout(timeout);
     }
     
     ItemSet<I> getItemSetA()
     {
-        return itemSetA;
+        return itemSets.get(0);
     }
     
     ItemSet<I> getItemSetB()
     {
-        return itemSetB;
+        return itemSets.get(1);
+    }
+    
+    List<ItemSet<I>> getItemSets()
+    {
+        return itemSets;
     }
     
     Status getStatus()
@@ -144,5 +643,137 @@ public abstract class Synchronization<I>
         return status;
     }
     
+    /**
+     * Returns the etag of the given item, which was either prefetched or is read from the {@link ItemSet}.
+     *
+     * @param itemSet the {@link ItemSet} which contains the item.
+     * @param itemId the ID of the item.
+     *
+     * @return the etag of the item.
+     *
+     * @throws Exception if the etag could not be read.
+     */
+    String getEtag(ItemSet<I> itemSet, String itemId) throws Exception
+    {
+        String etag = etagTable.get(itemSet, itemId);
+        return etag == null ? itemSet.getEtag(itemId) : etag;
+    }
+    
+    /**
+     * Executes the given lookup on side A and side B, concurrently if the parallel lookups are enabled.
+     *
+     * @param lookup the lookup which should be executed.
+     *
+     * @return the results of both lookups.
+     *
+     * @throws Exception if one of the lookups failed.
+     */
+    <T> ParallelLookup.Result<T> lookup(ParallelLookup.Lookup<I, T> lookup) throws Exception
+    {
+        return ParallelLookup.lookup(getItemSetA(), getItemSetB(), lookup, parallelLookups ? lookupExecutor : null);
+    }
+    
+    /**
+     * Reads the etags of the given item on side A and side B.
+     * If the etag of at least one side was prefetched, the remaining etag is read by the calling thread
+     * instead of forking a parallel lookup.
+     *
+     * @param itemId the ID of the item.
+     *
+     * @return the etags of the item on both sides.
+     *
+     * @throws Exception if one of the etags could not be read.
+     */
+    ParallelLookup.Result<String> lookupEtags(String itemId) throws Exception
+    {
+        String etagA = etagTable.get(getItemSetA(), itemId);
+        String etagB = etagTable.get(getItemSetB(), itemId);
+        if(etagA == null && etagB == null)
+            return lookup(itemSet -> itemSet.getEtag(itemId));
+        
+        return new ParallelLookup.Result<>(etagA == null ? getItemSetA().getEtag(itemId) : etagA,
+                                           etagB == null ? getItemSetB().getEtag(itemId) : etagB);
+    }
+    
+    /**
+     * Copies the item with the given ID from the source to the target {@link ItemSet}.
+     * If both sets are {@link StreamingItemSet}s, the content of the item is streamed from the source
+     * to the target without loading the item into memory.
+     *
+     * @param source the {@link ItemSet} which contains the item.
+     * @param target the {@link ItemSet} into which the item should be copied.
+     * @param itemId the ID of the item.
+     * @param existsOnTarget whether the item already exists on the target and needs to be updated.
+     *
+     * @throws Exception if the item could not be read or written. The failure is counted for the side of the target.
+     */
+    void transferItem(ItemSet<I> source, ItemSet<I> target, String itemId, boolean existsOnTarget) throws Exception
+    {
+        try
+        {
+            if(source instanceof StreamingItemSet && target instanceof StreamingItemSet)
+            {
+                streamItem((StreamingItemSet<I>) source, (StreamingItemSet<I>) target, itemId);
+            }
+            else
+            {
+                I item = source.getItem(itemId);
+                if(existsOnTarget)
+                    target.updateItem(itemId, item);
+                else
+                    target.addItem(itemId, item);
+            }
+        }
+        catch(Exception exception)
+        {
+            recordWriteFailure(target);
+            throw exception;
+        }
+    }
+    
+    private void streamItem(StreamingItemSet<I> source, StreamingItemSet<I> target, String itemId) throws Exception
+    {
+        long size = source.getSize(itemId);
+        try(ReadableByteChannel channel = source.openRead(itemId))
+        {
+            target.write(itemId, channel, size);
+        }
+        
+        statistics.bytesTransferred(size);
+    }
+    
+    /**
+     * Records an executed {@link SyncAction} in the statistics of the current run.
+     */
+    void record(String itemId, SyncAction action)
+    {
+        statistics.record(itemId, action);
+    }
+    
+    /**
+     * Records a failed write to the given {@link ItemSet} in the statistics of the current run.
+     * All {@link ItemSet}s except the first one count as side B.
+     */
+    void recordWriteFailure(ItemSet<I> target)
+    {
+        statistics.writeFailed(target == getItemSetA());
+    }
+    
+    /**
+     * Records a conflict in the statistics of the current run.
+     */
+    void recordConflict(String itemId)
+    {
+        statistics.conflict(itemId);
+    }
+    
+    /**
+     * Called once per run before the items with the given IDs are processed.
+     * Subclasses may analyze the items as a whole, for example to detect moved items.
+     *
+     * @param itemIds the IDs of the items which will be synchronized.
+     */
+    void prepare(Collection<String> itemIds) {}
+    
     abstract void synchronizeItem(String itemId) throws Exception;
 }
@@ -0,0 +1,138 @@
+package cloud.codestore.synchronization.helper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A space-efficient probabilistic set of strings.
+ * {@link #mightContain(String)} never returns {@code false} for a string which was added,
+ * but it may return {@code true} for a string which was not added with the configured false positive probability.
+ * <br/><br/>
+ * This class is not thread safe.
+ */
+public class BloomFilter
+{
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    
+    /**
+     * @param expectedInsertions the expected number of strings which will be added.
+     * @param falsePositiveProbability the desired probability that {@link #mightContain(String)} returns {@code true}
+     *         for a string which was not added, for example {@code 0.01}.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability)
+    {
+        if(falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+        
+        long insertions = Math.max(1, expectedInsertions);
+        long optimalBitCount = (long) (-insertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBitCount + 63) / 64);
+        
+        this.bits = new long[words];
+        this.bitCount = (long) words * 64;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / insertions * Math.log(2)));
+    }
+    
+    private BloomFilter(long[] bits, int hashCount)
+    {
+        this.bits = bits;
+        this.bitCount = (long) bits.length * 64;
+        this.hashCount = hashCount;
+    }
+    
+    /**
+     * @param value a string which should be added to the filter.
+     */
+    public void add(String value)
+    {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1);
+        for(int i = 0; i < hashCount; i++)
+        {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+    
+    /**
+     * @param value a string.
+     *
+     * @return {@code false} if the string was definitely not added or {@code true} if it might have been added.
+     */
+    public boolean mightContain(String value)
+    {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1);
+        for(int i = 0; i < hashCount; i++)
+        {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if((bits[(int) (index >>> 6)] & (1L << index)) == 0)
+                return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Writes this filter so that it can be restored by {@link #readFrom(DataInput)}.
+     *
+     * @param output the {@link DataOutput} to write the filter to.
+     *
+     * @throws IOException if the filter could not be written.
+     */
+    public void writeTo(DataOutput output) throws IOException
+    {
+        output.writeInt(hashCount);
+        output.writeInt(bits.length);
+        for(long word : bits)
+            output.writeLong(word);
+    }
+    
+    /**
+     * @param input the {@link DataInput} to read the filter from.
+     *
+     * @return the filter which was written by {@link #writeTo(DataOutput)}.
+     *
+     * @throws IOException if the filter could not be read.
+     */
+    public static BloomFilter readFrom(DataInput input) throws IOException
+    {
+        int hashCount = input.readInt();
+        long[] bits = new long[input.readInt()];
+        for(int i = 0; i < bits.length; i++)
+            bits[i] = input.readLong();
+        
+        return new BloomFilter(bits, hashCount);
+    }
+    
+    /**
+     * Calculates a 64-bit FNV-1a hash of the characters of the given string.
+     */
+    private static long hash(String value)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < value.length(); i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        
+        return mix(hash);
+    }
+    
+    /**
+     * The finalization step of MurmurHash3 to distribute the bits of the hash evenly.
+     */
+    private static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,168 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.ItemSet;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An {@link ItemSet} which answers {@link #contains(String)} with a {@link BloomFilter} where possible.
+ * <br/><br/>
+ * The filter is built once from a listing of the item IDs. If the filter states that an item is definitely not
+ * contained, {@link #contains(String)} returns {@code false} without calling the underlying {@link ItemSet}.
+ * Only possible positives are confirmed by the underlying set. This is useful if {@code contains} is expensive,
+ * for example a network call, and many items of the other side do not exist in this set.
+ * <br/><br/>
+ * Items which are added via {@link #addItem(String, Object)} are added to the filter as well.
+ * All other methods are delegated to the underlying set. If items are added to the underlying set directly,
+ * the filter does not know them and must be rebuilt by {@link #rebuild()} before the next synchronization.
+ * <br/><br/>
+ * The optional capabilities of the underlying set, like {@link cloud.codestore.synchronization.StreamingItemSet}
+ * or {@link cloud.codestore.synchronization.CopyableItemSet}, are not forwarded, since every item which
+ * is written to this set must pass the filter. The synchronization therefore uses the plain {@link ItemSet} methods.
+ *
+ * @param <I> the type of an item.
+ */
+public class BloomFilterItemSet<I> implements ItemSet<I>
+{
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    
+    private final ItemSet<I> itemSet;
+    private BloomFilter bloomFilter;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    /**
+     * Builds the filter from the IDs returned by {@link ItemSet#getItemIds()}.
+     *
+     * @param itemSet the underlying {@link ItemSet}.
+     */
+    public BloomFilterItemSet(ItemSet<I> itemSet)
+    {
+        this(itemSet, Objects.requireNonNull(itemSet).getItemIds());
+    }
+    
+    private BloomFilterItemSet(ItemSet<I> itemSet, Set<String> itemIds)
+    {
+        this(itemSet, itemIds.iterator(), itemIds.size());
+    }
+    
+    /**
+     * Builds the filter from the given listing of item IDs.
+     * The IDs are only iterated once and are not kept in memory.
+     *
+     * @param itemSet the underlying {@link ItemSet}.
+     * @param itemIds the IDs of all items of the underlying set, for example streamed from a remote listing.
+     * @param expectedItems the expected number of items to size the filter.
+     */
+    public BloomFilterItemSet(ItemSet<I> itemSet, Iterator<String> itemIds, long expectedItems)
+    {
+        this.itemSet = Objects.requireNonNull(itemSet);
+        this.bloomFilter = createBloomFilter(itemIds, expectedItems);
+    }
+    
+    /**
+     * Rebuilds the filter from the IDs returned by {@link ItemSet#getItemIds()}.
+     * This method must not be called while a synchronization is running.
+     */
+    public void rebuild()
+    {
+        Set<String> itemIds = itemSet.getItemIds();
+        rebuild(itemIds.iterator(), itemIds.size());
+    }
+    
+    /**
+     * Rebuilds the filter from the given listing of item IDs.
+     * This method must not be called while a synchronization is running.
+     *
+     * @param itemIds the IDs of all items of the underlying set.
+     * @param expectedItems the expected number of items to size the filter.
+     */
+    public void rebuild(Iterator<String> itemIds, long expectedItems)
+    {
+        BloomFilter newBloomFilter = createBloomFilter(itemIds, expectedItems);
+        lock.writeLock().lock();
+        try
+        {
+            bloomFilter = newBloomFilter;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static BloomFilter createBloomFilter(Iterator<String> itemIds, long expectedItems)
+    {
+        BloomFilter bloomFilter = new BloomFilter(expectedItems, FALSE_POSITIVE_PROBABILITY);
+        while(itemIds.hasNext())
+            bloomFilter.add(itemIds.next());
+        
+        return bloomFilter;
+    }
+    
+    @Override
+    public Set<String> getItemIds()
+    {
+        return itemSet.getItemIds();
+    }
+    
+    @Override
+    public boolean contains(String itemId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            if(!bloomFilter.mightContain(itemId))
+                return false;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        return itemSet.contains(itemId);
+    }
+    
+    @Override
+    public String getEtag(String itemId) throws Exception
+    {
+        return itemSet.getEtag(itemId);
+    }
+    
+    @Override
+    public I getItem(String itemId) throws Exception
+    {
+        return itemSet.getItem(itemId);
+    }
+    
+    @Override
+    public void addItem(String itemId, I item) throws Exception
+    {
+        lock.writeLock().lock();
+        try
+        {
+            bloomFilter.add(itemId);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        
+        itemSet.addItem(itemId, item);
+    }
+    
+    @Override
+    public void delete(String itemId) throws Exception
+    {
+        itemSet.delete(itemId);
+    }
+    
+    @Override
+    public void updateItem(String itemId, I item) throws Exception
+    {
+        itemSet.updateItem(itemId, item);
+    }
+}
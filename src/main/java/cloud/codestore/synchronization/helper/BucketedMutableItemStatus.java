@@ -0,0 +1,246 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.ItemPartition;
+import cloud.codestore.synchronization.Status;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link Status} which splits its content into several bucket files by the hash of the item IDs.
+ * <br/><br/>
+ * A bucket is loaded from its file as soon as an item of the bucket is accessed for the first time.
+ * {@link #save()} only rewrites the buckets which were modified by {@link #put(String, String)} or {@link #delete(String)}.
+ * Every bucket is written durably via {@link DurableFiles}, so a crash never leaves a partially written bucket.
+ * So a large status which changes only slightly between two synchronizations can be saved quickly.
+ * <br/><br/>
+ * The number of buckets must not be changed for an existing directory.
+ */
+public class BucketedMutableItemStatus implements Status
+{
+    private static final String DELIMITER = ",";
+    private static final String FILE_PREFIX = "bucket-";
+    private static final String FILE_SUFFIX = ".csv";
+    
+    private final Path directory;
+    private final Bucket[] buckets;
+    
+    private BucketedMutableItemStatus(Path directory, int bucketCount)
+    {
+        this.directory = directory;
+        this.buckets = new Bucket[bucketCount];
+        for(int i = 0; i < bucketCount; i++)
+            buckets[i] = new Bucket(directory.resolve(FILE_PREFIX + i + FILE_SUFFIX));
+    }
+    
+    /**
+     * Creates a new {@link BucketedMutableItemStatus} object which stores its content in the given directory.
+     * No bucket is loaded until it is accessed.
+     *
+     * @param directory the directory which contains the bucket files.
+     * @param bucketCount the number of buckets.
+     *
+     * @return a {@link BucketedMutableItemStatus} object.
+     *
+     * @throws IOException if the directory could not be created.
+     * @throws IllegalArgumentException if {@code bucketCount} is less than 1.
+     */
+    public static BucketedMutableItemStatus open(Path directory, int bucketCount) throws IOException
+    {
+        if(bucketCount < 1)
+            throw new IllegalArgumentException("There must be at least one bucket");
+        
+        Files.createDirectories(directory);
+        return new BucketedMutableItemStatus(directory, bucketCount);
+    }
+    
+    /**
+     * @return the directory which contains the bucket files.
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+    
+    /**
+     * Loads all buckets.
+     *
+     * @return a snapshot of the IDs of all items in the status.
+     */
+    @Override
+    public Set<String> getItemIds()
+    {
+        Set<String> itemIds = new HashSet<>();
+        for(Bucket bucket : buckets)
+            bucket.addItemIds(itemIds);
+        
+        return Collections.unmodifiableSet(itemIds);
+    }
+    
+    @Override
+    public boolean contains(String itemId)
+    {
+        return bucketOf(itemId).contains(itemId);
+    }
+    
+    @Override
+    public void put(String itemId)
+    {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void put(String itemId, String etag)
+    {
+        bucketOf(itemId).put(itemId, etag);
+    }
+    
+    @Override
+    public String getEtag(String itemId)
+    {
+        return bucketOf(itemId).getEtag(itemId);
+    }
+    
+    @Override
+    public void delete(String itemId)
+    {
+        bucketOf(itemId).delete(itemId);
+    }
+    
+    /**
+     * Rewrites all modified buckets.
+     * If a bucket could not be saved, the remaining buckets are saved anyway.
+     *
+     * @throws IOException if at least one bucket could not be saved.
+     */
+    @Override
+    public void save() throws IOException
+    {
+        IOException exception = null;
+        for(Bucket bucket : buckets)
+        {
+            try
+            {
+                bucket.save();
+            }
+            catch(IOException e)
+            {
+                if(exception == null)
+                    exception = e;
+                else
+                    exception.addSuppressed(e);
+            }
+        }
+        
+        if(exception != null)
+            throw exception;
+    }
+    
+    private Bucket bucketOf(String itemId)
+    {
+        return buckets[ItemPartition.indexOf(itemId, buckets.length)];
+    }
+    
+    private static class Bucket
+    {
+        private final Path file;
+        private Map<String, String> itemIdToEtagMap;
+        private boolean dirty;
+        
+        Bucket(Path file)
+        {
+            this.file = file;
+        }
+        
+        synchronized boolean contains(String itemId)
+        {
+            return entries().containsKey(itemId);
+        }
+        
+        synchronized String getEtag(String itemId)
+        {
+            return entries().get(itemId);
+        }
+        
+        synchronized void put(String itemId, String etag)
+        {
+            entries().put(itemId, etag);
+            dirty = true;
+        }
+        
+        synchronized void delete(String itemId)
+        {
+            if(entries().remove(itemId) != null)
+                dirty = true;
+        }
+        
+        synchronized void addItemIds(Set<String> itemIds)
+        {
+            itemIds.addAll(entries().keySet());
+        }
+        
+        synchronized void save() throws IOException
+        {
+            if(!dirty)
+                return;
+            
+            DurableFiles.write(file, output -> {
+                Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                for(Map.Entry<String, String> entry : itemIdToEtagMap.entrySet())
+                {
+                    writer.write(entry.getKey() + DELIMITER + entry.getValue());
+                    writer.write(System.lineSeparator());
+                }
+                
+                writer.flush();
+            });
+            
+            dirty = false;
+        }
+        
+        private Map<String, String> entries()
+        {
+            if(itemIdToEtagMap == null)
+                itemIdToEtagMap = load();
+            
+            return itemIdToEtagMap;
+        }
+        
+        private Map<String, String> load()
+        {
+            Map<String, String> entries = new HashMap<>();
+            try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+            {
+                String line;
+                while((line = reader.readLine()) != null)
+                {
+                    int index = line.lastIndexOf(DELIMITER);
+                    if(index >= 0)
+                        entries.put(line.substring(0, index), line.substring(index + 1));
+                }
+            }
+            catch(NoSuchFileException e)
+            {
+                // the bucket has never been saved
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.Status;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link Status} which saves the content in a compact binary file.
+ * <br/><br/>
+ * The item IDs are sorted and front coded, so only the part of an ID which differs from the previous ID is stored.
+ * This is very effective for hierarchical IDs like paths.
+ * Etags which consist of an even number of lowercase hexadecimal digits are stored as binary.
+ * The entries are grouped into blocks which are compressed independently of each other.
+ * They are copied together with their etags before the file is written, so the file is a consistent snapshot.
+ * So the blocks are compressed and decompressed in parallel while the file is written or read as a stream.
+ * Only a small window of blocks is processed ahead of the stream, so the file is never held in memory as a whole.
+ * <br/><br/>
+ * All lengths and counts are validated while the file is read, so a corrupt file results in an {@link IOException}.
+ */
+public class CompressedMutableItemStatus extends AbstractMutableItemStatus
+{
+    private static final int MAGIC_NUMBER = 0x53544154;
+    private static final byte VERSION = 1;
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_BLOCK_LENGTH = 64 * 1024 * 1024;
+    private static final int MAX_COMPRESSION_RATIO = 1032;
+    private static final int WINDOW_SIZE = ForkJoinPool.getCommonPoolParallelism() + 1;
+    private static final byte NULL_ETAG = 0;
+    private static final byte TEXT_ETAG = 1;
+    private static final byte HEX_ETAG = 2;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    private final Path file;
+    
+    private CompressedMutableItemStatus(Map<String, String> itemIdToEtagMap, Path file)
+    {
+        super(itemIdToEtagMap);
+        this.file = file;
+    }
+    
+    /**
+     * Creates a new {@link CompressedMutableItemStatus} object which contains the data from the given file.
+     * If the file does not exist, the status will be empty.
+     *
+     * @param file the file of the status.
+     *
+     * @return a {@link CompressedMutableItemStatus} object.
+     *
+     * @throws IOException if the file could not be loaded.
+     */
+    public static CompressedMutableItemStatus load(Path file) throws IOException
+    {
+        if(Files.notExists(file))
+            return new CompressedMutableItemStatus(new HashMap<>(), file);
+        
+        return new CompressedMutableItemStatus(loadItemToEtagMap(file), file);
+    }
+    
+    /**
+     * Creates a new {@link CompressedMutableItemStatus} object which contains the data from the given file.
+     * If the file could not be loaded, the status will be empty.
+     *
+     * @param file the file of the status.
+     *
+     * @return a {@link CompressedMutableItemStatus} object.
+     */
+    public static CompressedMutableItemStatus loadSilently(Path file)
+    {
+        try
+        {
+            return load(file);
+        }
+        catch(IOException e)
+        {
+            return new CompressedMutableItemStatus(new HashMap<>(), file);
+        }
+    }
+    
+    @Override
+    public void save(Map<String, String> itemIdToEtagMap) throws IOException
+    {
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        synchronized(itemIdToEtagMap)
+        {
+            for(Map.Entry<String, String> entry : itemIdToEtagMap.entrySet())
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+        }
+        
+        entries.sort(Map.Entry.comparingByKey());
+        int blockCount = (entries.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        DurableFiles.write(file, fileOutput -> {
+            DataOutputStream output = new DataOutputStream(fileOutput);
+            output.writeInt(MAGIC_NUMBER);
+            output.writeByte(VERSION);
+            output.writeInt(blockCount);
+            
+            Deque<CompletableFuture<byte[]>> window = new ArrayDeque<>(WINDOW_SIZE);
+            int nextBlock = 0;
+            while(nextBlock < blockCount || !window.isEmpty())
+            {
+                for(; nextBlock < blockCount && window.size() < WINDOW_SIZE; nextBlock++)
+                {
+                    int start = nextBlock * BLOCK_SIZE;
+                    List<Map.Entry<String, String>> blockEntries = entries.subList(start, Math.min(entries.size(),
+                                                                                                   start + BLOCK_SIZE));
+                    window.add(CompletableFuture.supplyAsync(() -> encodeBlock(blockEntries)));
+                }
+                
+                output.write(join(window.poll()));
+            }
+            
+            output.flush();
+        });
+    }
+    
+    private static Map<String, String> loadItemToEtagMap(Path file) throws IOException
+    {
+        Map<String, String> itemIdToEtagMap = new HashMap<>();
+        Deque<CompletableFuture<Map<String, String>>> window = new ArrayDeque<>(WINDOW_SIZE);
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if(input.readInt() != MAGIC_NUMBER || input.readByte() != VERSION)
+                throw new IOException("Unsupported status file: " + file);
+            
+            int blockCount = checkRange(input.readInt(), Integer.MAX_VALUE);
+            for(int i = 0; i < blockCount; i++)
+            {
+                int entryCount = checkRange(input.readInt(), BLOCK_SIZE);
+                int uncompressedLength = checkRange(input.readInt(), MAX_BLOCK_LENGTH);
+                int compressedLength = checkRange(input.readInt(), MAX_BLOCK_LENGTH);
+                if(uncompressedLength > (long) compressedLength * MAX_COMPRESSION_RATIO + 1024)
+                    throw new IOException("The status file is corrupt");
+                
+                byte[] compressedBlock = new byte[compressedLength];
+                input.readFully(compressedBlock);
+                if(window.size() == WINDOW_SIZE)
+                    itemIdToEtagMap.putAll(join(window.poll()));
+                
+                window.add(CompletableFuture.supplyAsync(() -> decodeBlock(compressedBlock,
+                                                                           uncompressedLength,
+                                                                           entryCount)));
+            }
+        }
+        
+        for(CompletableFuture<Map<String, String>> block : window)
+            itemIdToEtagMap.putAll(join(block));
+        
+        return itemIdToEtagMap;
+    }
+    
+    /**
+     * @return the given value if it is between 0 and the given maximum.
+     *
+     * @throws IOException if the value is out of range, which means the file is corrupt.
+     */
+    private static int checkRange(int value, int maxValue) throws IOException
+    {
+        if(value < 0 || value > maxValue)
+            throw new IOException("The status file is corrupt");
+        
+        return value;
+    }
+    
+    /**
+     * Encodes and compresses the given entries into a block including its header.
+     */
+    private static byte[] encodeBlock(List<Map.Entry<String, String>> entries)
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            String previousItemId = "";
+            for(Map.Entry<String, String> entry : entries)
+            {
+                String itemId = entry.getKey();
+                int sharedPrefix = sharedPrefixLength(previousItemId, itemId);
+                writeVarInt(output, sharedPrefix);
+                writeBytes(output, itemId.substring(sharedPrefix).getBytes(StandardCharsets.UTF_8));
+                writeEtag(output, entry.getValue());
+                previousItemId = itemId;
+            }
+            
+            byte[] uncompressedBlock = bytes.toByteArray();
+            byte[] compressedBlock = compress(uncompressedBlock);
+            if(uncompressedBlock.length > MAX_BLOCK_LENGTH || compressedBlock.length > MAX_BLOCK_LENGTH)
+                throw new IOException("The entries of a block exceed " + MAX_BLOCK_LENGTH + " bytes");
+            
+            
+            ByteArrayOutputStream block = new ByteArrayOutputStream(compressedBlock.length + 3 * Integer.BYTES);
+            DataOutputStream blockOutput = new DataOutputStream(block);
+            blockOutput.writeInt(entries.size());
+            blockOutput.writeInt(uncompressedBlock.length);
+            blockOutput.writeInt(compressedBlock.length);
+            blockOutput.write(compressedBlock);
+            return block.toByteArray();
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+    
+    private static Map<String, String> decodeBlock(byte[] compressedBlock, int uncompressedLength, int entryCount)
+    {
+        try
+        {
+            byte[] uncompressedBlock = decompress(compressedBlock, uncompressedLength);
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(uncompressedBlock));
+            Map<String, String> entries = new HashMap<>(entryCount * 2);
+            String previousItemId = "";
+            for(int i = 0; i < entryCount; i++)
+            {
+                int sharedPrefix = checkRange(readVarInt(input), previousItemId.length());
+                String suffix = new String(readBytes(input), StandardCharsets.UTF_8);
+                String itemId = previousItemId.substring(0, sharedPrefix) + suffix;
+                entries.put(itemId, readEtag(input));
+                previousItemId = itemId;
+            }
+            
+            return entries;
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+    
+    private static void writeEtag(DataOutputStream output, String etag) throws IOException
+    {
+        if(etag == null)
+        {
+            output.writeByte(NULL_ETAG);
+        }
+        else if(isHex(etag))
+        {
+            output.writeByte(HEX_ETAG);
+            byte[] bytes = new byte[etag.length() / 2];
+            for(int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte) Integer.parseInt(etag.substring(2 * i, 2 * i + 2), 16);
+            
+            writeBytes(output, bytes);
+        }
+        else
+        {
+            output.writeByte(TEXT_ETAG);
+            writeBytes(output, etag.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    private static String readEtag(DataInputStream input) throws IOException
+    {
+        byte type = input.readByte();
+        if(type == NULL_ETAG)
+            return null;
+        
+        byte[] bytes = readBytes(input);
+        if(type == TEXT_ETAG)
+            return new String(bytes, StandardCharsets.UTF_8);
+        
+        char[] hex = new char[bytes.length * 2];
+        for(int i = 0; i < bytes.length; i++)
+        {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        
+        return new String(hex);
+    }
+    
+    private static boolean isHex(String etag)
+    {
+        if(etag.isEmpty() || etag.length() % 2 != 0)
+            return false;
+        
+        for(int i = 0; i < etag.length(); i++)
+        {
+            char character = etag.charAt(i);
+            if((character < '0' || character > '9') && (character < 'a' || character > 'f'))
+                return false;
+        }
+        
+        return true;
+    }
+    
+    private static int sharedPrefixLength(String previousItemId, String itemId)
+    {
+        int maxLength = Math.min(previousItemId.length(), itemId.length());
+        int length = 0;
+        while(length < maxLength && previousItemId.charAt(length) == itemId.charAt(length))
+            length++;
+        
+        // do not split a surrogate pair
+        if(length > 0 && Character.isHighSurrogate(itemId.charAt(length - 1)))
+            length--;
+        
+        return length;
+    }
+    
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException
+    {
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+    
+    private static byte[] readBytes(DataInputStream input) throws IOException
+    {
+        byte[] bytes = new byte[checkRange(readVarInt(input), input.available())];
+        input.readFully(bytes);
+        return bytes;
+    }
+    
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException
+    {
+        while((value & ~0x7F) != 0)
+        {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        
+        output.writeByte(value);
+    }
+    
+    private static int readVarInt(InputStream input) throws IOException
+    {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7)
+        {
+            int b = input.read();
+            if(b < 0)
+                throw new EOFException();
+            
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        
+        throw new IOException("Invalid variable-length integer");
+    }
+    
+    private static byte[] compress(byte[] bytes)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try
+        {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while(!deflater.finished())
+                output.write(buffer, 0, deflater.deflate(buffer));
+            
+            return output.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] decompress(byte[] bytes, int uncompressedLength) throws IOException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(bytes);
+            byte[] result = new byte[uncompressedLength];
+            int length = 0;
+            while(length < uncompressedLength && !inflater.finished())
+            {
+                int inflated = inflater.inflate(result, length, uncompressedLength - length);
+                if(inflated == 0 && inflater.needsInput())
+                    throw new EOFException("The status file is truncated");
+                
+                length += inflated;
+            }
+            
+            if(length < uncompressedLength)
+                throw new EOFException("The status file is truncated");
+            
+            return result;
+        }
+        catch(DataFormatException exception)
+        {
+            throw new IOException("The status file is corrupt", exception);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) throws IOException
+    {
+        try
+        {
+            return future.join();
+        }
+        catch(CompletionException exception)
+        {
+            if(exception.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) exception.getCause()).getCause();
+            
+            throw exception;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package cloud.codestore.synchronization.helper;
 import cloud.codestore.synchronization.Status;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -62,7 +63,8 @@ public class CsvImmutableItemStatus extends AbstractImmutableItemStatus
     @Override
     public void save(Set<String> itemIDs) throws IOException
     {
-        Files.writeString(file, String.join(DELIMITER, itemIDs));
+        String content = String.join(DELIMITER, itemIDs);
+        DurableFiles.write(file, output -> output.write(content.getBytes(StandardCharsets.UTF_8)));
     }
     
     private static Set<String> loadItemIDs(Path file) throws IOException
@@ -70,7 +72,7 @@ public class CsvImmutableItemStatus extends AbstractImmutableItemStatus
         String content = Files.readString(file);
         if(!content.isEmpty())
             return Arrays.stream(content.split(DELIMITER)).collect(Collectors.toSet());
-    
+        
         return new HashSet<>();
     }
 }
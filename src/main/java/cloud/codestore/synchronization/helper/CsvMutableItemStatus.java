@@ -3,6 +3,7 @@ package cloud.codestore.synchronization.helper;
 import cloud.codestore.synchronization.Status;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -63,12 +64,19 @@ public class CsvMutableItemStatus extends AbstractMutableItemStatus
     @Override
     public void save(Map<String, String> itemIdToEtagMap) throws IOException
     {
-        List<String> lines = itemIdToEtagMap.entrySet()
-                                            .stream()
-                                            .map(entry -> entry.getKey() + DELIMITER + entry.getValue())
-                                            .collect(Collectors.toList());
+        List<String> lines;
+        synchronized(itemIdToEtagMap)
+        {
+            lines = itemIdToEtagMap.entrySet()
+                                   .stream()
+                                   .map(entry -> entry.getKey() + DELIMITER + entry.getValue())
+                                   .collect(Collectors.toList());
+        }
         
-        Files.write(file, lines);
+        DurableFiles.write(file, output -> {
+            for(String line : lines)
+                output.write((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        });
     }
     
     private static Map<String, String> loadItemToEtagMap(Path file) throws IOException
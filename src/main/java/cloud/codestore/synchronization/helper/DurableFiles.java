@@ -0,0 +1,117 @@
+package cloud.codestore.synchronization.helper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes files in a crash-safe way.
+ * <br/><br/>
+ * The content is written into a temporary file in the same directory which is forced to the storage device.
+ * Then, the temporary file atomically replaces the target file and the directory is forced as well.
+ * So after a crash, the target file contains either the old or the new content, but never a partially written one.
+ */
+public final class DurableFiles
+{
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    
+    private DurableFiles() {}
+    
+    /**
+     * Writes the content of the given file durably and atomically.
+     *
+     * @param file the file to write.
+     * @param contentWriter a {@link ContentWriter} which writes the content into the given stream.
+     *
+     * @throws IOException if the file could not be written. In this case, the file remains unchanged.
+     */
+    public static void write(Path file, ContentWriter contentWriter) throws IOException
+    {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + TEMPORARY_FILE_SUFFIX);
+        try
+        {
+            try(FileChannel channel = FileChannel.open(temporaryFile,
+                                                       StandardOpenOption.CREATE,
+                                                       StandardOpenOption.WRITE,
+                                                       StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), 65536);
+                contentWriter.write(output);
+                output.flush();
+                channel.force(true);
+            }
+            
+            move(temporaryFile, file);
+        }
+        catch(IOException | RuntimeException exception)
+        {
+            Files.deleteIfExists(temporaryFile);
+            throw exception;
+        }
+    }
+    
+    /**
+     * Atomically replaces the target file by the source file and forces the directory.
+     * The source file should already be forced to the storage device.
+     *
+     * @param source the file which should replace the target file.
+     * @param target the file to replace.
+     *
+     * @throws IOException if the file could not be moved.
+     */
+    public static void move(Path source, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch(AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+    
+    /**
+     * Forces the given directory to the storage device, so that created, renamed or deleted files are durable.
+     * Some platforms do not support this. In this case, the directory is not forced.
+     *
+     * @param directory the directory to force.
+     */
+    public static void forceDirectory(Path directory)
+    {
+        if(directory == null)
+            return;
+        
+        try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch(IOException e)
+        {
+            // directories cannot be opened or forced on every platform
+        }
+    }
+    
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    public interface ContentWriter
+    {
+        /**
+         * @param output the stream to write the content into. It must not be closed.
+         *
+         * @throws IOException if the content could not be written.
+         */
+        void write(OutputStream output) throws IOException;
+    }
+}
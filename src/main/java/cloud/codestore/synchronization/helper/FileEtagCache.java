@@ -0,0 +1,307 @@
+package cloud.codestore.synchronization.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates the etags of files and keeps them in a persistent cache.
+ * <br/><br/>
+ * The etag of a file is the 128-bit {@link MurmurHash3} of its content as lowercase hex string.
+ * Files which are larger than 8 MiB are split into chunks of 8 MiB, which are hashed in parallel.
+ * The etag of such a file is the hash of the concatenated hashes of its chunks.
+ * <br/><br/>
+ * Every calculated etag is cached together with the size, the modification time and the file key (the inode
+ * on most file systems) of the file. As long as these attributes are unchanged, the file is not hashed again.
+ * A file which was modified less than two seconds before it was hashed is not cached,
+ * because a subsequent modification might not change its modification time.
+ * The cache can be saved into a file by {@link #save()} and loaded again by {@link #load(Path)},
+ * so unchanged files are not hashed again after a restart.
+ * <br/><br/>
+ * This class is thread safe.
+ */
+public class FileEtagCache
+{
+    private static final int MAGIC = 0x45544147;
+    private static final int VERSION = 1;
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long RACY_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    private final Path file;
+    private final Map<String, Entry> entries;
+    
+    private FileEtagCache(Path file, Map<String, Entry> entries)
+    {
+        this.file = file;
+        this.entries = entries;
+    }
+    
+    /**
+     * Creates a new {@link FileEtagCache} object which contains the etags from the given file.
+     * If the file does not exist, the cache is empty.
+     *
+     * @param file the file of the cache.
+     *
+     * @return a {@link FileEtagCache} object.
+     *
+     * @throws IOException if the file could not be loaded.
+     */
+    public static FileEtagCache load(Path file) throws IOException
+    {
+        if(Files.notExists(file))
+            return new FileEtagCache(file, new ConcurrentHashMap<>());
+        
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if(input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw new IOException("The file " + file + " is not a supported etag cache");
+            
+            int count = input.readInt();
+            Map<String, Entry> entries = new ConcurrentHashMap<>(count);
+            for(int i = 0; i < count; i++)
+            {
+                String path = input.readUTF();
+                entries.put(path, new Entry(input.readLong(), input.readLong(), input.readUTF(), input.readUTF()));
+            }
+            
+            return new FileEtagCache(file, entries);
+        }
+    }
+    
+    /**
+     * Creates a new {@link FileEtagCache} object which contains the etags from the given file.
+     * If the file could not be loaded, the cache will be empty.
+     *
+     * @param file the file of the cache.
+     *
+     * @return a {@link FileEtagCache} object.
+     */
+    public static FileEtagCache loadSilently(Path file)
+    {
+        try
+        {
+            return load(file);
+        }
+        catch(IOException e)
+        {
+            return new FileEtagCache(file, new ConcurrentHashMap<>());
+        }
+    }
+    
+    /**
+     * Returns the etag of the given file. The file is only hashed if it is not cached or has been changed.
+     *
+     * @param path the path of a regular file.
+     *
+     * @return the etag of the file.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public String getEtag(Path path) throws IOException
+    {
+        String key = path.toAbsolutePath().normalize().toString();
+        Entry entry = readEntry(path, null);
+        Entry cachedEntry = entries.get(key);
+        if(cachedEntry != null && cachedEntry.hasSameAttributes(entry))
+            return cachedEntry.etag;
+        
+        long startTime = System.currentTimeMillis();
+        String etag = hash(path, entry.size);
+        Entry hashedEntry = readEntry(path, etag);
+        
+        if(hashedEntry.hasSameAttributes(entry) && entry.modified + RACY_INTERVAL < TimeUnit.MILLISECONDS.toNanos(startTime))
+            entries.put(key, hashedEntry);
+        else
+            entries.remove(key);
+        
+        return etag;
+    }
+    
+    /**
+     * Removes the given file from the cache, for example because it has been deleted.
+     *
+     * @param path the path of a file.
+     */
+    public void remove(Path path)
+    {
+        entries.remove(path.toAbsolutePath().normalize().toString());
+    }
+    
+    /**
+     * Saves the cache into its file.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public void save() throws IOException
+    {
+        Map<String, Entry> snapshot = Map.copyOf(entries);
+        DurableFiles.write(file, stream -> {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(snapshot.size());
+            for(Map.Entry<String, Entry> entry : snapshot.entrySet())
+            {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue().size);
+                output.writeLong(entry.getValue().modified);
+                output.writeUTF(entry.getValue().fileKey);
+                output.writeUTF(entry.getValue().etag);
+            }
+            
+            output.flush();
+        });
+    }
+    
+    /**
+     * Calculates the etag of the given file without using the cache.
+     *
+     * @param path the path of a regular file.
+     *
+     * @return the etag of the file.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public static String calculateEtag(Path path) throws IOException
+    {
+        return hash(path, Files.size(path));
+    }
+    
+    private static String hash(Path path, long size) throws IOException
+    {
+        if(size <= CHUNK_SIZE)
+        {
+            try(InputStream input = Files.newInputStream(path))
+            {
+                MurmurHash3 hash = new MurmurHash3();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int length;
+                while((length = input.read(buffer)) > 0)
+                    hash.update(ByteBuffer.wrap(buffer, 0, length));
+                
+                return toHex(hash.digest());
+            }
+        }
+        
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            List<CompletableFuture<byte[]>> chunks = new ArrayList<>();
+            for(long position = 0; position < size; position += CHUNK_SIZE)
+            {
+                long chunkPosition = position;
+                long chunkEnd = Math.min(size, position + CHUNK_SIZE);
+                chunks.add(CompletableFuture.supplyAsync(() -> hashChunk(channel, chunkPosition, chunkEnd)));
+            }
+            
+            MurmurHash3 hash = new MurmurHash3();
+            for(CompletableFuture<byte[]> chunk : chunks)
+                hash.update(ByteBuffer.wrap(join(chunk)));
+            
+            return toHex(hash.digest());
+        }
+    }
+    
+    private static byte[] hashChunk(FileChannel channel, long position, long end)
+    {
+        MurmurHash3 hash = new MurmurHash3();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try
+        {
+            while(position < end)
+            {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+                int length = channel.read(buffer, position);
+                if(length < 0)
+                    break;
+                
+                position += length;
+                buffer.flip();
+                hash.update(buffer);
+            }
+            
+            return hash.digest();
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+    
+    private static Entry readEntry(Path path, String etag) throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new Entry(attributes.size(),
+                         attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                         String.valueOf(attributes.fileKey()),
+                         etag);
+    }
+    
+    private static String toHex(byte[] bytes)
+    {
+        char[] chars = new char[bytes.length * 2];
+        for(int i = 0; i < bytes.length; i++)
+        {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        
+        return new String(chars);
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) throws IOException
+    {
+        try
+        {
+            return future.join();
+        }
+        catch(CompletionException exception)
+        {
+            if(exception.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) exception.getCause()).getCause();
+            
+            throw exception;
+        }
+    }
+    
+    private static class Entry
+    {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final String etag;
+        
+        Entry(long size, long modified, String fileKey, String etag)
+        {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.etag = etag;
+        }
+        
+        boolean hasSameAttributes(Entry other)
+        {
+            return size == other.size && modified == other.modified && Objects.equals(fileKey, other.fileKey);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.Status;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link Status} which combines concurrent calls of {@link #save()} into a single save of the underlying status.
+ * <br/><br/>
+ * If several threads save the status at about the same time, for example after every synchronized item,
+ * only the first one saves the underlying status. The other threads wait and are released by the next save
+ * which covers their changes. So a durable status does not need one fsync per call.
+ * Optionally, the first thread waits for a short time to collect more calls before it saves the status.
+ * <br/><br/>
+ * All other methods are delegated to the underlying status.
+ */
+public class GroupCommitStatus implements Status
+{
+    private final Status status;
+    private final long windowMillis;
+    
+    private Round pendingRound = new Round();
+    private boolean saving;
+    
+    /**
+     * @param status the underlying {@link Status}.
+     */
+    public GroupCommitStatus(Status status)
+    {
+        this(status, Duration.ZERO);
+    }
+    
+    /**
+     * @param status the underlying {@link Status}.
+     * @param window the time to wait for further calls before the underlying status is saved.
+     */
+    public GroupCommitStatus(Status status, Duration window)
+    {
+        this.status = Objects.requireNonNull(status);
+        this.windowMillis = window.toMillis();
+    }
+    
+    @Override
+    public Set<String> getItemIds()
+    {
+        return status.getItemIds();
+    }
+    
+    @Override
+    public boolean contains(String itemId)
+    {
+        return status.contains(itemId);
+    }
+    
+    @Override
+    public void put(String itemId)
+    {
+        status.put(itemId);
+    }
+    
+    @Override
+    public void put(String itemId, String etag)
+    {
+        status.put(itemId, etag);
+    }
+    
+    @Override
+    public String getEtag(String itemId)
+    {
+        return status.getEtag(itemId);
+    }
+    
+    @Override
+    public void delete(String itemId)
+    {
+        status.delete(itemId);
+    }
+    
+    /**
+     * Returns as soon as the underlying status was saved by a save which started after this method was called.
+     *
+     * @throws IOException if that save failed.
+     */
+    @Override
+    public void save() throws IOException
+    {
+        synchronized(this)
+        {
+            Round round = pendingRound;
+            while(saving && !round.done)
+                waitForSave();
+            
+            if(round.done)
+            {
+                if(round.failure != null)
+                    throw new IOException("The status could not be saved", round.failure);
+                
+                return;
+            }
+            
+            saving = true;
+        }
+        
+        if(windowMillis > 0)
+            sleep();
+        
+        Round round;
+        synchronized(this)
+        {
+            round = pendingRound;
+            pendingRound = new Round();
+        }
+        
+        try
+        {
+            status.save();
+        }
+        catch(IOException | RuntimeException exception)
+        {
+            round.failure = exception;
+            throw exception;
+        }
+        finally
+        {
+            synchronized(this)
+            {
+                round.done = true;
+                saving = false;
+                notifyAll();
+            }
+        }
+    }
+    
+    private void waitForSave() throws IOException
+    {
+        try
+        {
+            wait();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the status to be saved", e);
+        }
+    }
+    
+    private void sleep()
+    {
+        try
+        {
+            Thread.sleep(windowMillis);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * The calls of {@link #save()} which are covered by the same save of the underlying status.
+     */
+    private static class Round
+    {
+        private boolean done;
+        private Exception failure;
+    }
+}
@@ -0,0 +1,678 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.Status;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Status} for a very large number of items which is stored as a log-structured merge tree.
+ * <br/><br/>
+ * Changes are collected in an in-memory memtable. As soon as it contains a certain number of entries or
+ * {@link #save()} is called, the memtable is written into a new immutable segment file which is sorted by the item IDs.
+ * Every segment keeps a sparse index and a {@link BloomFilter} in memory,
+ * so a lookup only reads a small block of the segments which might contain the item.
+ * If there are too many segments, the newest segments are merged by a background thread. An older segment is only
+ * part of the merge if it is not larger than the newer segments together, so large segments are rarely rewritten.
+ * If a compaction fails, the error is thrown by the next call of {@link #save()}.
+ * The heap usage therefore does not depend on the number of items in the status.
+ * <br/><br/>
+ * {@link #getItemIds()} returns a view which iterates the IDs in their sorted order by merging the segments.
+ * The segments are read from disk on every iteration. Segments which are read by an iteration are not deleted
+ * by a compaction until the iteration has finished. An iteration which is stopped early should therefore be closed,
+ * either by closing the iterator, which implements {@link Closeable}, or by closing the stream of {@link #streamItemIds()}.
+ * <br/><br/>
+ * The status should be closed if it is no longer needed, to stop the compaction and release the file handles.
+ * Since full memtables are written to disk automatically, changes may be persisted before {@link #save()} is called.
+ */
+public class LsmMutableItemStatus implements Status, Closeable
+{
+    private static final int DEFAULT_MEMTABLE_SIZE = 100_000;
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 8;
+    private static final String TOMBSTONE = new String("deleted");
+    private static final String NULL_ETAG = new String("null");
+    
+    private final Path directory;
+    private final int memtableSize;
+    private final int compactionThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger memtableWrites = new AtomicInteger();
+    private final ExecutorService compactionExecutor;
+    private final AtomicReference<IOException> compactionFailure = new AtomicReference<>();
+    
+    private volatile ConcurrentSkipListMap<String, String> memtable = new ConcurrentSkipListMap<>();
+    private volatile List<LsmSegment> segments;
+    private long nextSequence;
+    private Future<?> compaction;
+    
+    private LsmMutableItemStatus(Path directory, int memtableSize, int compactionThreshold, List<LsmSegment> segments)
+    {
+        this.directory = directory;
+        this.memtableSize = memtableSize;
+        this.compactionThreshold = compactionThreshold;
+        this.segments = segments;
+        this.nextSequence = segments.stream().mapToLong(LsmSegment::getLastSequence).max().orElse(0) + 1;
+        this.compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "status-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Opens the status which is stored in the given directory using the default settings.
+     *
+     * @param directory the directory which contains the segment files.
+     *
+     * @return a {@link LsmMutableItemStatus} object.
+     *
+     * @throws IOException if the segment files could not be opened.
+     */
+    public static LsmMutableItemStatus open(Path directory) throws IOException
+    {
+        return open(directory, DEFAULT_MEMTABLE_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+    
+    /**
+     * Opens the status which is stored in the given directory.
+     *
+     * @param directory the directory which contains the segment files.
+     * @param memtableSize the number of changes which are kept in memory before they are written into a new segment.
+     * @param compactionThreshold the number of segments which causes them to be merged into a single segment.
+     *
+     * @return a {@link LsmMutableItemStatus} object.
+     *
+     * @throws IOException if the segment files could not be opened.
+     */
+    public static LsmMutableItemStatus open(Path directory, int memtableSize, int compactionThreshold)
+            throws IOException
+    {
+        if(memtableSize < 1)
+            throw new IllegalArgumentException("The memtable size must be at least 1");
+        if(compactionThreshold < 2)
+            throw new IllegalArgumentException("The compaction threshold must be at least 2");
+        
+        Files.createDirectories(directory);
+        return new LsmMutableItemStatus(directory, memtableSize, compactionThreshold, openSegments(directory));
+    }
+    
+    /**
+     * @return a view of the IDs of all items in the status which iterates them in their sorted order.
+     */
+    @Override
+    public Set<String> getItemIds()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return new ItemIdIterator(mergeAll());
+            }
+            
+            @Override
+            public int size()
+            {
+                int size = 0;
+                for(Iterator<String> iterator = iterator(); iterator.hasNext(); iterator.next())
+                    size++;
+                
+                return size;
+            }
+            
+            @Override
+            public boolean contains(Object object)
+            {
+                return object instanceof String && LsmMutableItemStatus.this.contains((String) object);
+            }
+        };
+    }
+    
+    /**
+     * @return a stream of the IDs of all items in their sorted order, which releases the segments when it is closed.
+     */
+    @Override
+    public Stream<String> streamItemIds()
+    {
+        ItemIdIterator itemIds = new ItemIdIterator(mergeAll());
+        int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(itemIds, characteristics), false)
+                            .onClose(itemIds::closeUnchecked);
+    }
+    
+    @Override
+    public boolean contains(String itemId)
+    {
+        LsmSegment.Entry entry = find(itemId);
+        return entry != null && entry.type != LsmSegment.DELETED;
+    }
+    
+    @Override
+    public void put(String itemId)
+    {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void put(String itemId, String etag)
+    {
+        write(itemId, etag == null ? NULL_ETAG : etag);
+    }
+    
+    @Override
+    public String getEtag(String itemId)
+    {
+        LsmSegment.Entry entry = find(itemId);
+        return entry == null ? null : entry.etag;
+    }
+    
+    @Override
+    public void delete(String itemId)
+    {
+        write(itemId, TOMBSTONE);
+    }
+    
+    /**
+     * Writes all changes which are still in memory into a new segment file.
+     *
+     * @throws IOException if the segment could not be written or if a compaction failed since the last call.
+     */
+    @Override
+    public void save() throws IOException
+    {
+        flush();
+        IOException failure = compactionFailure.getAndSet(null);
+        if(failure != null)
+            throw failure;
+    }
+    
+    /**
+     * Waits for a running compaction and closes all segment files.
+     * Changes which were not saved are discarded.
+     *
+     * @throws IOException if a segment file could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        compactionExecutor.shutdown();
+        awaitCompaction();
+        
+        lock.writeLock().lock();
+        try
+        {
+            for(LsmSegment segment : segments)
+                segment.close();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void write(String itemId, String value)
+    {
+        lock.readLock().lock();
+        try
+        {
+            memtable.put(itemId, value);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        if(memtableWrites.incrementAndGet() >= memtableSize)
+        {
+            try
+            {
+                flush();
+            }
+            catch(IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+    
+    private LsmSegment.Entry find(String itemId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            String value = memtable.get(itemId);
+            if(value != null)
+                return toEntry(itemId, value);
+            
+            for(LsmSegment segment : segments)
+            {
+                LsmSegment.Entry entry = segment.get(itemId);
+                if(entry != null)
+                    return entry.type == LsmSegment.DELETED ? null : entry;
+            }
+            
+            return null;
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void flush() throws IOException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if(memtable.isEmpty())
+                return;
+            
+            long sequence = nextSequence++;
+            Iterator<LsmSegment.Entry> entries = memtable.entrySet()
+                                                         .stream()
+                                                         .map(entry -> toEntry(entry.getKey(), entry.getValue()))
+                                                         .iterator();
+            LsmSegment segment = LsmSegment.write(directory, sequence, sequence, entries, memtable.size());
+            
+            List<LsmSegment> newSegments = new ArrayList<>(segments.size() + 1);
+            newSegments.add(segment);
+            newSegments.addAll(segments);
+            segments = newSegments;
+            memtable = new ConcurrentSkipListMap<>();
+            memtableWrites.set(0);
+            
+            if(segments.size() >= compactionThreshold && (compaction == null || compaction.isDone()))
+                compaction = compactionExecutor.submit(this::compact);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Merges the newest segments into a single one.
+     * If the oldest segment is part of the merge, deleted entries can be dropped.
+     */
+    private void compact()
+    {
+        List<LsmSegment> currentSegments = segments;
+        List<LsmSegment> inputs = selectCompactionInputs(currentSegments);
+        if(inputs.size() < 2)
+            return;
+        
+        try
+        {
+            long firstSequence = inputs.stream().mapToLong(LsmSegment::getFirstSequence).min().orElseThrow();
+            long lastSequence = inputs.stream().mapToLong(LsmSegment::getLastSequence).max().orElseThrow();
+            long expectedEntries = inputs.stream().mapToLong(LsmSegment::getEntryCount).sum();
+            boolean containsOldestSegment = inputs.size() == currentSegments.size();
+            
+            LsmSegment merged;
+            try(MergingIterator entries = new MergingIterator(null, inputs, containsOldestSegment))
+            {
+                merged = LsmSegment.write(directory, firstSequence, lastSequence, entries, expectedEntries);
+            }
+            
+            lock.writeLock().lock();
+            try
+            {
+                List<LsmSegment> newSegments = new ArrayList<>(segments);
+                int position = newSegments.indexOf(inputs.get(0));
+                newSegments.removeAll(inputs);
+                newSegments.add(position, merged);
+                segments = newSegments;
+                for(LsmSegment input : inputs)
+                    input.delete();
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+        catch(IOException exception)
+        {
+            compactionFailure.set(exception);
+        }
+        catch(UncheckedIOException exception)
+        {
+            compactionFailure.set(exception.getCause());
+        }
+    }
+    
+    /**
+     * Selects the newest segments for a compaction. An older segment is added as long as it does not contain
+     * more entries than the already selected segments together, but at least two segments are selected.
+     *
+     * @param segments the segments ordered from the newest to the oldest one.
+     */
+    private static List<LsmSegment> selectCompactionInputs(List<LsmSegment> segments)
+    {
+        int count = 0;
+        long entries = 0;
+        while(count < segments.size() && (count < 2 || segments.get(count).getEntryCount() <= entries))
+            entries += segments.get(count++).getEntryCount();
+        
+        return new ArrayList<>(segments.subList(0, count));
+    }
+    
+    private void awaitCompaction()
+    {
+        Future<?> runningCompaction;
+        lock.readLock().lock();
+        try
+        {
+            runningCompaction = compaction;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        if(runningCompaction == null)
+            return;
+        
+        try
+        {
+            runningCompaction.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            compactionFailure.compareAndSet(null, cause instanceof IOException ? (IOException) cause : new IOException(cause));
+        }
+    }
+    
+    private MergingIterator mergeAll()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return new MergingIterator(memtable, segments, true);
+        }
+        catch(IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static LsmSegment.Entry toEntry(String itemId, String value)
+    {
+        if(value == TOMBSTONE)
+            return new LsmSegment.Entry(itemId, LsmSegment.DELETED, null);
+        if(value == NULL_ETAG)
+            return new LsmSegment.Entry(itemId, LsmSegment.NULL_ETAG, null);
+        
+        return new LsmSegment.Entry(itemId, LsmSegment.PRESENT, value);
+    }
+    
+    /**
+     * Opens all segment files of the given directory.
+     * Segments which are covered by a merged segment are left over from an interrupted compaction and are deleted.
+     *
+     * @return the segments ordered from the newest to the oldest one.
+     */
+    private static List<LsmSegment> openSegments(Path directory) throws IOException
+    {
+        List<Path> files;
+        try(Stream<Path> stream = Files.list(directory))
+        {
+            files = stream.collect(Collectors.toList());
+        }
+        
+        List<LsmSegment> segments = new ArrayList<>();
+        for(Path file : files)
+        {
+            if(file.getFileName().toString().endsWith(".tmp"))
+                Files.delete(file);
+            else if(LsmSegment.isSegmentFile(file))
+                segments.add(LsmSegment.open(file));
+        }
+        
+        List<LsmSegment> obsoleteSegments = new ArrayList<>();
+        for(LsmSegment segment : segments)
+            if(segments.stream().anyMatch(other -> other.covers(segment)))
+                obsoleteSegments.add(segment);
+        
+        for(LsmSegment segment : obsoleteSegments)
+            segment.delete();
+        
+        segments.removeAll(obsoleteSegments);
+        segments.sort(Comparator.comparingLong(LsmSegment::getLastSequence).reversed());
+        return segments;
+    }
+    
+    /**
+     * Merges the memtable and several segments into a single sorted sequence of entries.
+     * If an item is contained in several sources, only the entry of the newest source is returned.
+     * The iterator holds a reference to every segment until it is closed.
+     */
+    private static final class MergingIterator implements Iterator<LsmSegment.Entry>, Closeable
+    {
+        private final PriorityQueue<Source> queue = new PriorityQueue<>();
+        private final List<LsmSegment.EntryIterator> segmentIterators = new ArrayList<>();
+        private final boolean skipDeletedEntries;
+        private LsmSegment.Entry next;
+        
+        /**
+         * @param memtable the memtable or {@code null} if only the segments should be merged.
+         * @param segments the segments ordered from the newest to the oldest one.
+         * @param skipDeletedEntries whether deleted entries should be skipped.
+         */
+        MergingIterator(NavigableMap<String, String> memtable, List<LsmSegment> segments, boolean skipDeletedEntries)
+                throws IOException
+        {
+            this.skipDeletedEntries = skipDeletedEntries;
+            int rank = 0;
+            if(memtable != null)
+            {
+                Iterator<LsmSegment.Entry> entries = memtable.entrySet()
+                                                             .stream()
+                                                             .map(entry -> toEntry(entry.getKey(), entry.getValue()))
+                                                             .iterator();
+                addSource(entries, rank++);
+            }
+            
+            try
+            {
+                for(LsmSegment segment : segments)
+                {
+                    LsmSegment.EntryIterator entries = segment.scan();
+                    segmentIterators.add(entries);
+                    addSource(entries, rank++);
+                }
+            }
+            catch(IOException | RuntimeException exception)
+            {
+                close();
+                throw exception;
+            }
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            while(next == null && !queue.isEmpty())
+            {
+                Source source = queue.poll();
+                LsmSegment.Entry entry = source.current;
+                advance(source);
+                
+                while(!queue.isEmpty() && queue.peek().current.itemId.equals(entry.itemId))
+                    advance(queue.poll());
+                
+                if(!skipDeletedEntries || entry.type != LsmSegment.DELETED)
+                    next = entry;
+            }
+            
+            return next != null;
+        }
+        
+        @Override
+        public LsmSegment.Entry next()
+        {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            
+            LsmSegment.Entry entry = next;
+            next = null;
+            return entry;
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            IOException failure = null;
+            for(LsmSegment.EntryIterator iterator : segmentIterators)
+            {
+                try
+                {
+                    iterator.close();
+                }
+                catch(IOException exception)
+                {
+                    failure = exception;
+                }
+            }
+            
+            if(failure != null)
+                throw failure;
+        }
+        
+        private void addSource(Iterator<LsmSegment.Entry> entries, int rank)
+        {
+            Source source = new Source(entries, rank);
+            advance(source);
+        }
+        
+        private void advance(Source source)
+        {
+            if(source.entries.hasNext())
+            {
+                source.current = source.entries.next();
+                queue.add(source);
+            }
+        }
+    }
+    
+    /**
+     * A source of a {@link MergingIterator}. Sources with a lower rank are newer.
+     */
+    private static final class Source implements Comparable<Source>
+    {
+        private final Iterator<LsmSegment.Entry> entries;
+        private final int rank;
+        private LsmSegment.Entry current;
+        
+        Source(Iterator<LsmSegment.Entry> entries, int rank)
+        {
+            this.entries = entries;
+            this.rank = rank;
+        }
+        
+        @Override
+        public int compareTo(Source other)
+        {
+            int comparison = current.itemId.compareTo(other.current.itemId);
+            return comparison != 0 ? comparison : Integer.compare(rank, other.rank);
+        }
+    }
+    
+    /**
+     * Returns the IDs of the entries which are not deleted.
+     * The underlying {@link MergingIterator} is closed as soon as all IDs were returned.
+     */
+    private static final class ItemIdIterator implements Iterator<String>, Closeable
+    {
+        private final MergingIterator entries;
+        private String next;
+        
+        ItemIdIterator(MergingIterator entries)
+        {
+            this.entries = entries;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            while(next == null && entries.hasNext())
+            {
+                LsmSegment.Entry entry = entries.next();
+                if(entry.type != LsmSegment.DELETED)
+                    next = entry.itemId;
+            }
+            
+            if(next == null)
+                closeUnchecked();
+            
+            return next != null;
+        }
+        
+        @Override
+        public String next()
+        {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            
+            String itemId = next;
+            next = null;
+            return itemId;
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            entries.close();
+        }
+        
+        void closeUnchecked()
+        {
+            try
+            {
+                close();
+            }
+            catch(IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package cloud.codestore.synchronization.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable file of an {@link LsmMutableItemStatus} which contains entries sorted by their item ID.
+ * <br/><br/>
+ * The file consists of the entries, a sparse index which contains the offset of every 128th entry,
+ * a {@link BloomFilter} of all item IDs and a footer with the offsets of the index and the filter.
+ * The index and the filter are kept in memory, so a lookup reads at most one block of 128 entries.
+ * The name of the file contains the range of sequence numbers of the flushed memtables the segment consists of.
+ * <br/><br/>
+ * Lookups read the file by positional reads, so they can be executed concurrently.
+ * The segment is reference counted: the {@link LsmMutableItemStatus} holds one reference and every running
+ * {@link #scan()} holds another one. The file is only closed, and deleted if the segment became obsolete,
+ * after the last reference was released.
+ */
+final class LsmSegment implements Closeable
+{
+    static final byte PRESENT = 0;
+    static final byte NULL_ETAG = 1;
+    static final byte DELETED = 2;
+    
+    private static final int INDEX_INTERVAL = 128;
+    private static final int FOOTER_SIZE = 3 * Long.BYTES;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final Pattern FILE_NAME = Pattern.compile("segment-(\\d+)-(\\d+)\\.dat");
+    
+    private final Path file;
+    private final long firstSequence;
+    private final long lastSequence;
+    private final FileChannel channel;
+    private final long entryCount;
+    private final List<String> indexKeys;
+    private final long[] indexOffsets;
+    private final BloomFilter bloomFilter;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean ownerReleased = new AtomicBoolean();
+    private volatile boolean obsolete;
+    
+    private LsmSegment(Path file, long firstSequence, long lastSequence) throws IOException
+    {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.lastSequence = lastSequence;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        
+        try
+        {
+            DataInputStream footer = openStream(channel.size() - FOOTER_SIZE);
+            long indexOffset = footer.readLong();
+            long bloomFilterOffset = footer.readLong();
+            this.entryCount = footer.readLong();
+            
+            DataInputStream index = openStream(indexOffset);
+            int indexSize = index.readInt();
+            this.indexKeys = new ArrayList<>(indexSize);
+            this.indexOffsets = new long[indexSize];
+            for(int i = 0; i < indexSize; i++)
+            {
+                indexKeys.add(index.readUTF());
+                indexOffsets[i] = index.readLong();
+            }
+            
+            this.bloomFilter = BloomFilter.readFrom(openStream(bloomFilterOffset));
+        }
+        catch(IOException exception)
+        {
+            channel.close();
+            throw exception;
+        }
+    }
+    
+    /**
+     * @param file a file in the directory of the status.
+     *
+     * @return whether the given file is a segment file.
+     */
+    static boolean isSegmentFile(Path file)
+    {
+        return FILE_NAME.matcher(file.getFileName().toString()).matches();
+    }
+    
+    /**
+     * Opens an existing segment file.
+     */
+    static LsmSegment open(Path file) throws IOException
+    {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        if(!matcher.matches())
+            throw new IllegalArgumentException("Not a segment file: " + file);
+        
+        return new LsmSegment(file, Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+    }
+    
+    /**
+     * Writes the given entries into a new segment file and opens it.
+     * The file is written into a temporary file first, which is moved to its final name after it has been synced.
+     *
+     * @param directory the directory of the status.
+     * @param firstSequence the first sequence number the segment consists of.
+     * @param lastSequence the last sequence number the segment consists of.
+     * @param entries the entries sorted by their item ID.
+     * @param expectedEntries the expected number of entries to size the {@link BloomFilter}.
+     */
+    static LsmSegment write(
+            Path directory,
+            long firstSequence,
+            long lastSequence,
+            Iterator<Entry> entries,
+            long expectedEntries
+    ) throws IOException
+    {
+        Path file = directory.resolve("segment-" + firstSequence + "-" + lastSequence + ".dat");
+        Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+        BloomFilter bloomFilter = new BloomFilter(expectedEntries, FALSE_POSITIVE_PROBABILITY);
+        List<String> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        
+        try(FileChannel channel = FileChannel.open(temporaryFile,
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            CountingOutputStream counter = new CountingOutputStream(Channels.newOutputStream(channel));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(counter));
+            long entryCount = 0;
+            while(entries.hasNext())
+            {
+                Entry entry = entries.next();
+                if(entryCount % INDEX_INTERVAL == 0)
+                {
+                    output.flush();
+                    indexKeys.add(entry.itemId);
+                    indexOffsets.add(counter.count);
+                }
+                
+                output.writeUTF(entry.itemId);
+                output.writeByte(entry.type);
+                if(entry.type == PRESENT)
+                    output.writeUTF(entry.etag);
+                
+                bloomFilter.add(entry.itemId);
+                entryCount++;
+            }
+            
+            output.flush();
+            long indexOffset = counter.count;
+            output.writeInt(indexKeys.size());
+            for(int i = 0; i < indexKeys.size(); i++)
+            {
+                output.writeUTF(indexKeys.get(i));
+                output.writeLong(indexOffsets.get(i));
+            }
+            
+            output.flush();
+            long bloomFilterOffset = counter.count;
+            bloomFilter.writeTo(output);
+            output.writeLong(indexOffset);
+            output.writeLong(bloomFilterOffset);
+            output.writeLong(entryCount);
+            output.flush();
+            channel.force(true);
+        }
+        
+        DurableFiles.move(temporaryFile, file);
+        return new LsmSegment(file, firstSequence, lastSequence);
+    }
+    
+    long getFirstSequence()
+    {
+        return firstSequence;
+    }
+    
+    long getLastSequence()
+    {
+        return lastSequence;
+    }
+    
+    long getEntryCount()
+    {
+        return entryCount;
+    }
+    
+    /**
+     * @return whether this segment contains all entries of the given segment.
+     */
+    boolean covers(LsmSegment segment)
+    {
+        return this != segment && firstSequence <= segment.firstSequence && segment.lastSequence <= lastSequence;
+    }
+    
+    /**
+     * @param itemId the ID of an item.
+     *
+     * @return the entry of the given item or {@code null} if this segment does not contain the item.
+     */
+    Entry get(String itemId) throws IOException
+    {
+        if(!bloomFilter.mightContain(itemId))
+            return null;
+        
+        int block = Collections.binarySearch(indexKeys, itemId);
+        if(block < 0)
+            block = -block - 2;
+        if(block < 0)
+            return null;
+        
+        DataInputStream input = openStream(indexOffsets[block]);
+        long remainingEntries = Math.min(INDEX_INTERVAL, entryCount - (long) block * INDEX_INTERVAL);
+        for(long i = 0; i < remainingEntries; i++)
+        {
+            Entry entry = readEntry(input);
+            int comparison = entry.itemId.compareTo(itemId);
+            if(comparison == 0)
+                return entry;
+            if(comparison > 0)
+                return null;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Reads all entries of this segment in their sorted order using a separate file handle.
+     * The returned iterator holds a reference to this segment until it is closed.
+     * It is closed automatically as soon as all entries were read.
+     * This method must only be called while the owner's reference has not been released yet.
+     */
+    EntryIterator scan() throws IOException
+    {
+        references.incrementAndGet();
+        try
+        {
+            return new EntryIterator(this);
+        }
+        catch(IOException exception)
+        {
+            release();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Marks this segment as obsolete and releases the reference of its owner.
+     * The file is deleted as soon as it is no longer read by any scan.
+     */
+    void delete() throws IOException
+    {
+        obsolete = true;
+        close();
+    }
+    
+    /**
+     * Releases the reference of the owner. Subsequent calls have no effect.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(ownerReleased.compareAndSet(false, true))
+            release();
+    }
+    
+    private void release() throws IOException
+    {
+        if(references.decrementAndGet() > 0)
+            return;
+        
+        channel.close();
+        if(obsolete)
+            Files.deleteIfExists(file);
+    }
+    
+    private DataInputStream openStream(long position)
+    {
+        return new DataInputStream(new BufferedInputStream(new PositionalInputStream(channel, position), 8192));
+    }
+    
+    private static Entry readEntry(DataInputStream input) throws IOException
+    {
+        String itemId = input.readUTF();
+        byte type = input.readByte();
+        String etag = type == PRESENT ? input.readUTF() : null;
+        return new Entry(itemId, type, etag);
+    }
+    
+    /**
+     * An entry of a segment.
+     */
+    static final class Entry
+    {
+        final String itemId;
+        final byte type;
+        final String etag;
+        
+        Entry(String itemId, byte type, String etag)
+        {
+            this.itemId = itemId;
+            this.type = type;
+            this.etag = etag;
+        }
+    }
+    
+    /**
+     * Iterates over the entries of a segment file.
+     */
+    static final class EntryIterator implements Iterator<Entry>, Closeable
+    {
+        private final LsmSegment segment;
+        private final DataInputStream input;
+        private long remainingEntries;
+        private boolean closed;
+        
+        private EntryIterator(LsmSegment segment) throws IOException
+        {
+            this.segment = segment;
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.file), 65536));
+            this.remainingEntries = segment.entryCount;
+            if(remainingEntries == 0)
+                close();
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return remainingEntries > 0;
+        }
+        
+        @Override
+        public Entry next()
+        {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            
+            try
+            {
+                Entry entry = readEntry(input);
+                if(--remainingEntries == 0)
+                    close();
+                
+                return entry;
+            }
+            catch(EOFException exception)
+            {
+                throw new IllegalStateException("The segment file is truncated", exception);
+            }
+            catch(IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            if(closed)
+                return;
+            
+            closed = true;
+            try
+            {
+                input.close();
+            }
+            finally
+            {
+                segment.release();
+            }
+        }
+    }
+    
+    /**
+     * Reads a file from the given position without changing the position of the shared {@link FileChannel}.
+     */
+    private static final class PositionalInputStream extends InputStream
+    {
+        private final FileChannel channel;
+        private long position;
+        
+        PositionalInputStream(FileChannel channel, long position)
+        {
+            this.channel = channel;
+            this.position = position;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException
+        {
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if(count > 0)
+                position += count;
+            
+            return count;
+        }
+    }
+    
+    private static final class CountingOutputStream extends FilterOutputStream
+    {
+        private long count;
+        
+        CountingOutputStream(OutputStream output)
+        {
+            super(output);
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package cloud.codestore.synchronization.helper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An incremental implementation of the 128-bit variant of MurmurHash3 for 64-bit platforms (x64_128).
+ * It is a fast non-cryptographic hash function, which is suitable for detecting changes of a content,
+ * but not for protecting it against manipulation.
+ * <br/><br/>
+ * The data can be passed in pieces of any size via {@link #update(ByteBuffer)}.
+ * The result is the same as if the whole data was hashed at once.
+ * <br/><br/>
+ * This class is not thread safe.
+ */
+public class MurmurHash3
+{
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int BLOCK_SIZE = 16;
+    
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long h1;
+    private long h2;
+    private long length;
+    
+    /**
+     * Creates a hash function with the seed 0.
+     */
+    public MurmurHash3()
+    {
+        this(0);
+    }
+    
+    /**
+     * @param seed the seed of the hash function.
+     */
+    public MurmurHash3(long seed)
+    {
+        this.h1 = seed;
+        this.h2 = seed;
+    }
+    
+    /**
+     * Calculates the hash of the given bytes.
+     *
+     * @param data the bytes to hash.
+     *
+     * @return the 16 bytes of the hash.
+     */
+    public static byte[] hash(byte[] data)
+    {
+        MurmurHash3 hash = new MurmurHash3();
+        hash.update(ByteBuffer.wrap(data));
+        return hash.digest();
+    }
+    
+    /**
+     * Adds the remaining bytes of the given buffer to the hash.
+     *
+     * @param data the bytes to hash.
+     */
+    public void update(ByteBuffer data)
+    {
+        length += data.remaining();
+        ByteBuffer input = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        
+        if(block.position() > 0)
+        {
+            while(block.hasRemaining() && input.hasRemaining())
+                block.put(input.get());
+            
+            if(block.hasRemaining())
+            {
+                data.position(data.limit());
+                return;
+            }
+            
+            block.flip();
+            mix(block.getLong(), block.getLong());
+            block.clear();
+        }
+        
+        while(input.remaining() >= BLOCK_SIZE)
+            mix(input.getLong(), input.getLong());
+        
+        block.put(input);
+        data.position(data.limit());
+    }
+    
+    /**
+     * Completes the calculation of the hash. Afterwards, this object must not be used anymore.
+     *
+     * @return the 16 bytes of the hash.
+     */
+    public byte[] digest()
+    {
+        long k1 = 0;
+        long k2 = 0;
+        int tailLength = block.position();
+        for(int i = tailLength - 1; i >= 8; i--)
+            k2 = (k2 << 8) | (block.get(i) & 0xff);
+        for(int i = Math.min(tailLength, 8) - 1; i >= 0; i--)
+            k1 = (k1 << 8) | (block.get(i) & 0xff);
+        
+        if(tailLength > 8)
+            h2 ^= mixK2(k2);
+        if(tailLength > 0)
+            h1 ^= mixK1(k1);
+        
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        
+        return ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+    }
+    
+    private void mix(long k1, long k2)
+    {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+        
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+    
+    private static long mixK1(long k1)
+    {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+    
+    private static long mixK2(long k2)
+    {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+    
+    private static long fmix(long k)
+    {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,131 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.ItemPartition;
+import cloud.codestore.synchronization.Status;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link Status} which consists of several partitions.
+ * Each item is stored in the {@link Status} of the {@link ItemPartition} it belongs to.
+ * <br/><br/>
+ * The partitions can be passed to separate {@link cloud.codestore.synchronization.Synchronization}s
+ * via {@link #getPartition(int)} and saved independently of each other.
+ * The {@link PartitionedStatus} itself represents the merged content of all partitions.
+ * It can therefore be used to split an existing status into partitions or to merge partitions into a single status.
+ */
+public class PartitionedStatus implements Status
+{
+    private final List<Status> partitions;
+    
+    /**
+     * @param partitions the {@link Status} of every partition. The n-th element contains the items
+     *         of the {@link ItemPartition} with the index n.
+     */
+    public PartitionedStatus(List<Status> partitions)
+    {
+        Objects.requireNonNull(partitions);
+        if(partitions.isEmpty())
+            throw new IllegalArgumentException("There must be at least one partition");
+        
+        this.partitions = new ArrayList<>(partitions);
+    }
+    
+    /**
+     * @return the number of partitions.
+     */
+    public int getPartitionCount()
+    {
+        return partitions.size();
+    }
+    
+    /**
+     * @param index the index of a partition.
+     *
+     * @return the {@link Status} of the corresponding partition.
+     */
+    public Status getPartition(int index)
+    {
+        return partitions.get(index);
+    }
+    
+    @Override
+    public Set<String> getItemIds()
+    {
+        Set<String> itemIds = new HashSet<>();
+        for(Status partition : partitions)
+            itemIds.addAll(partition.getItemIds());
+        
+        return Collections.unmodifiableSet(itemIds);
+    }
+    
+    @Override
+    public boolean contains(String itemId)
+    {
+        return partitionOf(itemId).contains(itemId);
+    }
+    
+    @Override
+    public void put(String itemId)
+    {
+        partitionOf(itemId).put(itemId);
+    }
+    
+    @Override
+    public void put(String itemId, String etag)
+    {
+        partitionOf(itemId).put(itemId, etag);
+    }
+    
+    @Override
+    public String getEtag(String itemId)
+    {
+        return partitionOf(itemId).getEtag(itemId);
+    }
+    
+    @Override
+    public void delete(String itemId)
+    {
+        partitionOf(itemId).delete(itemId);
+    }
+    
+    /**
+     * Saves every partition.
+     * If a partition could not be saved, the remaining partitions are saved anyway.
+     *
+     * @throws IOException if at least one partition could not be saved.
+     */
+    @Override
+    public void save() throws IOException
+    {
+        IOException exception = null;
+        for(Status partition : partitions)
+        {
+            try
+            {
+                partition.save();
+            }
+            catch(IOException e)
+            {
+                if(exception == null)
+                    exception = e;
+                else
+                    exception.addSuppressed(e);
+            }
+        }
+        
+        if(exception != null)
+            throw exception;
+    }
+    
+    private Status partitionOf(String itemId)
+    {
+        return partitions.get(ItemPartition.indexOf(itemId, partitions.size()));
+    }
+}
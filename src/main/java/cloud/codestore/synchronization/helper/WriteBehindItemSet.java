@@ -0,0 +1,319 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.FlushException;
+import cloud.codestore.synchronization.ItemSet;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * An {@link ItemSet} which buffers the changes and writes them to the underlying {@link ItemSet} in the background.
+ * <br/><br/>
+ * {@link #addItem(String, Object)}, {@link #updateItem(String, Object)} and {@link #delete(String)} return
+ * as soon as the change is buffered. A background thread writes the buffered changes in batches
+ * and in the order they were made. The buffer has a fixed capacity. If it is full, the methods wait until
+ * there is free space again. So the threads which synchronize the items do not wait for slow writes
+ * while the memory consumption stays bounded.
+ * <br/><br/>
+ * Reading a buffered item returns the buffered state.
+ * {@link #getEtag(String)} waits until the changes of the item are written, since the etag is calculated
+ * by the underlying set.
+ * <br/><br/>
+ * The {@link cloud.codestore.synchronization.Synchronization} calls {@link #flush()} before it returns,
+ * so the {@link cloud.codestore.synchronization.Status} is only saved after all changes have been written.
+ * Changes which could not be written are reported by a {@link FlushException}.
+ * <br/><br/>
+ * The optional capabilities of the underlying set, like {@link cloud.codestore.synchronization.StreamingItemSet}
+ * or {@link cloud.codestore.synchronization.MovableItemSet}, are not forwarded, since only buffered
+ * changes are written in the background. The synchronization therefore uses the plain {@link ItemSet} methods.
+ *
+ * @param <I> the type of an item.
+ */
+public class WriteBehindItemSet<I> implements ItemSet<I>, Flushable, Closeable
+{
+    private final ItemSet<I> itemSet;
+    private final int batchSize;
+    private final BlockingQueue<Change<I>> buffer;
+    private final Map<String, Change<I>> pendingChanges = new ConcurrentHashMap<>();
+    private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+    private final Thread writer;
+    
+    private long bufferedChanges;
+    private long writtenChanges;
+    private volatile boolean closed;
+    
+    /**
+     * @param itemSet the underlying {@link ItemSet}.
+     * @param capacity the maximum number of buffered changes.
+     * @param batchSize the maximum number of changes which are taken from the buffer at once.
+     */
+    public WriteBehindItemSet(ItemSet<I> itemSet, int capacity, int batchSize)
+    {
+        if(capacity < 1 || batchSize < 1)
+            throw new IllegalArgumentException("The capacity and the batch size must be at least 1");
+        
+        this.itemSet = Objects.requireNonNull(itemSet);
+        this.batchSize = batchSize;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeChanges, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * Returns a view of the IDs of the underlying set which includes the buffered changes,
+     * so it agrees with {@link #contains(String)}. Buffered deletions are skipped and buffered additions are included.
+     * The view is weakly consistent: changes which are written during the iteration may be missed.
+     */
+    @Override
+    public Set<String> getItemIds()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public boolean contains(Object object)
+            {
+                return object instanceof String && WriteBehindItemSet.this.contains((String) object);
+            }
+            
+            @Override
+            public Iterator<String> iterator()
+            {
+                Stream<String> existingItemIds = itemSet.getItemIds()
+                                                        .stream()
+                                                        .filter(WriteBehindItemSet.this::contains);
+                Stream<String> bufferedItemIds = pendingChanges.values()
+                                                               .stream()
+                                                               .filter(change -> change.type != ChangeType.DELETE)
+                                                               .map(change -> change.itemId)
+                                                               .filter(itemId -> !itemSet.contains(itemId));
+                
+                return Stream.concat(existingItemIds, bufferedItemIds).iterator();
+            }
+            
+            @Override
+            public int size()
+            {
+                int size = 0;
+                for(Iterator<String> iterator = iterator(); iterator.hasNext(); iterator.next())
+                    size++;
+                
+                return size;
+            }
+        };
+    }
+    
+    @Override
+    public boolean contains(String itemId)
+    {
+        Change<I> change = pendingChanges.get(itemId);
+        if(change != null)
+            return change.type != ChangeType.DELETE;
+        
+        return itemSet.contains(itemId);
+    }
+    
+    @Override
+    public String getEtag(String itemId) throws Exception
+    {
+        awaitWritten(itemId);
+        return itemSet.getEtag(itemId);
+    }
+    
+    @Override
+    public I getItem(String itemId) throws Exception
+    {
+        Change<I> change = pendingChanges.get(itemId);
+        if(change != null && change.type != ChangeType.DELETE)
+            return change.item;
+        
+        return itemSet.getItem(itemId);
+    }
+    
+    @Override
+    public void addItem(String itemId, I item) throws Exception
+    {
+        bufferChange(new Change<>(ChangeType.ADD, itemId, item));
+    }
+    
+    @Override
+    public void delete(String itemId) throws Exception
+    {
+        bufferChange(new Change<>(ChangeType.DELETE, itemId, null));
+    }
+    
+    @Override
+    public void updateItem(String itemId, I item) throws Exception
+    {
+        bufferChange(new Change<>(ChangeType.UPDATE, itemId, item));
+    }
+    
+    /**
+     * Waits until all buffered changes have been written.
+     *
+     * @throws FlushException if changes could not be written since the last flush.
+     * @throws InterruptedIOException if the current thread was interrupted while waiting.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        synchronized(this)
+        {
+            long target = bufferedChanges;
+            while(writtenChanges < target)
+                waitForWriter();
+        }
+        
+        if(!failures.isEmpty())
+        {
+            Map<String, Exception> flushedFailures = new HashMap<>();
+            for(String itemId : new ArrayList<>(failures.keySet()))
+                flushedFailures.put(itemId, failures.remove(itemId));
+            
+            throw new FlushException(flushedFailures);
+        }
+    }
+    
+    /**
+     * Writes all buffered changes and stops the background thread.
+     *
+     * @throws FlushException if changes could not be written since the last flush.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            closed = true;
+            writer.interrupt();
+        }
+    }
+    
+    private void bufferChange(Change<I> change) throws InterruptedException
+    {
+        if(closed)
+            throw new IllegalStateException("The item set is closed");
+        
+        synchronized(this)
+        {
+            bufferedChanges++;
+        }
+        
+        pendingChanges.put(change.itemId, change);
+        buffer.put(change);
+    }
+    
+    private void writeChanges()
+    {
+        List<Change<I>> batch = new ArrayList<>(batchSize);
+        while(!closed)
+        {
+            try
+            {
+                batch.add(buffer.take());
+                buffer.drainTo(batch, batchSize - 1);
+            }
+            catch(InterruptedException e)
+            {
+                return;
+            }
+            
+            for(Change<I> change : batch)
+                write(change);
+            
+            synchronized(this)
+            {
+                writtenChanges += batch.size();
+                notifyAll();
+            }
+            
+            batch.clear();
+        }
+    }
+    
+    private void write(Change<I> change)
+    {
+        try
+        {
+            switch(change.type)
+            {
+                case ADD:
+                    itemSet.addItem(change.itemId, change.item);
+                    break;
+                case UPDATE:
+                    itemSet.updateItem(change.itemId, change.item);
+                    break;
+                case DELETE:
+                    itemSet.delete(change.itemId);
+                    break;
+            }
+        }
+        catch(Exception exception)
+        {
+            failures.put(change.itemId, exception);
+        }
+        finally
+        {
+            pendingChanges.remove(change.itemId, change);
+        }
+    }
+    
+    private void awaitWritten(String itemId) throws InterruptedIOException
+    {
+        synchronized(this)
+        {
+            while(pendingChanges.containsKey(itemId))
+                waitForWriter();
+        }
+    }
+    
+    private void waitForWriter() throws InterruptedIOException
+    {
+        try
+        {
+            wait();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for buffered changes to be written");
+        }
+    }
+    
+    private enum ChangeType
+    {
+        ADD, UPDATE, DELETE
+    }
+    
+    private static class Change<I>
+    {
+        private final ChangeType type;
+        private final String itemId;
+        private final I item;
+        
+        Change(ChangeType type, String itemId, I item)
+        {
+            this.type = type;
+            this.itemId = itemId;
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("The asynchronous progress listener")
+class AsyncProgressListenerTest
+{
+    @Test
+    @DisplayName("delivers all events in order")
+    void deliverInOrder()
+    {
+        RecordingProgressListener recordingListener = new RecordingProgressListener();
+        AsyncProgressListener progressListener = new AsyncProgressListener(recordingListener, 8);
+        
+        Exception exception = new UnresolvedConflictException();
+        progressListener.numberOfItems(2);
+        progressListener.synchronizationStarted("1");
+        progressListener.synchronizationFinished("1");
+        progressListener.synchronizationStarted("2");
+        progressListener.synchronizationFailed("2", exception);
+        progressListener.close();
+        
+        assertEquals(List.of("numberOfItems 2", "started 1", "finished 1", "started 2", "failed 2"),
+                     recordingListener.events);
+    }
+    
+    @Test
+    @DisplayName("delivers the remaining events itself if the dispatcher task is never run")
+    void dispatcherNeverRuns()
+    {
+        RecordingProgressListener recordingListener = new RecordingProgressListener();
+        AsyncProgressListener progressListener = new AsyncProgressListener(recordingListener, 8, runnable -> {});
+        progressListener.synchronizationStarted("1");
+        progressListener.synchronizationFinished("1");
+        progressListener.close();
+        
+        assertEquals(List.of("started 1", "finished 1"), recordingListener.events);
+        assertEquals(Set.of(Thread.currentThread()), recordingListener.threads);
+    }
+    
+    @Test
+    @DisplayName("delivers the events on the given executor while the events are published")
+    void deliverOnExecutor() throws Exception
+    {
+        CountDownLatch delivered = new CountDownLatch(1);
+        RecordingProgressListener recordingListener = new RecordingProgressListener() {
+            @Override
+            public void numberOfItems(int numberOfItems)
+            {
+                super.numberOfItems(numberOfItems);
+                delivered.countDown();
+            }
+        };
+        ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "custom"));
+        try
+        {
+            AsyncProgressListener progressListener = new AsyncProgressListener(recordingListener, 8, executorService);
+            progressListener.numberOfItems(1);
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            progressListener.close();
+            
+            assertEquals(List.of("numberOfItems 1"), recordingListener.events);
+            assertEquals("custom", recordingListener.threads.iterator().next().getName());
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+    
+    @Test
+    @DisplayName("delivers the events itself if the executor does not run the dispatcher")
+    void busyExecutor()
+    {
+        RecordingProgressListener recordingListener = new RecordingProgressListener();
+        AsyncProgressListener progressListener = new AsyncProgressListener(recordingListener, 2, runnable -> {
+            throw new RejectedExecutionException();
+        });
+        
+        for(int i = 0; i < 5; i++)
+            progressListener.synchronizationFinished(String.valueOf(i));
+        progressListener.close();
+        
+        assertEquals(5, recordingListener.events.size());
+    }
+    
+    @Test
+    @DisplayName("delivers all events and rethrows the first exception of the listener")
+    void listenerFails()
+    {
+        IllegalStateException exception = new IllegalStateException();
+        RecordingProgressListener recordingListener = new RecordingProgressListener() {
+            @Override
+            public void synchronizationStarted(String itemId)
+            {
+                super.synchronizationStarted(itemId);
+                throw exception;
+            }
+        };
+        AsyncProgressListener progressListener = new AsyncProgressListener(recordingListener, 8);
+        progressListener.synchronizationStarted("1");
+        progressListener.synchronizationStarted("2");
+        progressListener.synchronizationFinished("2");
+        progressListener.close();
+        
+        assertEquals(List.of("started 1", "started 2", "finished 2"), recordingListener.events);
+        assertSame(exception, assertThrows(IllegalStateException.class, progressListener::rethrowFailure));
+    }
+    
+    @Test
+    @DisplayName("delivers the events of several threads when the buffer is full")
+    void deliverConcurrentEvents() throws Exception
+    {
+        RecordingProgressListener recordingListener = new RecordingProgressListener();
+        AsyncProgressListener progressListener = new AsyncProgressListener(recordingListener, 8);
+        
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        for(int i = 0; i < 1000; i++)
+        {
+            String itemId = String.valueOf(i);
+            executorService.execute(() -> progressListener.synchronizationFinished(itemId));
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        progressListener.close();
+        
+        assertEquals(1000, recordingListener.events.size());
+        assertEquals(1000, new HashSet<>(recordingListener.events).size());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("is used by the synchronization if a buffer size is set")
+    void usedBySynchronization()
+    {
+        RecordingProgressListener recordingListener = new RecordingProgressListener();
+        Synchronization<Object> synchronization = new ImmutableItemSynchronization<>(mock(ItemSet.class),
+                                                                                     mock(ItemSet.class),
+                                                                                     mock(Status.class));
+        synchronization.setProgressListener(recordingListener);
+        synchronization.setProgressBufferSize(16);
+        synchronization.synchronize(Set.of("1"));
+        
+        assertEquals(List.of("numberOfItems 1", "started 1", "finished 1"), recordingListener.events);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("does not block a synchronization which runs on its own single thread executor")
+    void synchronizationOnOwnExecutor() throws Exception
+    {
+        RecordingProgressListener recordingListener = new RecordingProgressListener();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try
+        {
+            Synchronization<Object> synchronization = new ImmutableItemSynchronization<>(mock(ItemSet.class),
+                                                                                         mock(ItemSet.class),
+                                                                                         mock(Status.class));
+            synchronization.setProgressListener(recordingListener);
+            synchronization.setProgressBufferSize(16);
+            synchronization.setExecutor(executorService);
+            executorService.submit(() -> synchronization.synchronize(Set.of("1"))).get(5, TimeUnit.SECONDS);
+            
+            assertEquals(List.of("numberOfItems 1", "started 1", "finished 1"), recordingListener.events);
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("throws the exception of the listener at the end of the synchronization")
+    void synchronizationListenerFails()
+    {
+        IllegalStateException exception = new IllegalStateException();
+        Synchronization<Object> synchronization = new ImmutableItemSynchronization<>(mock(ItemSet.class),
+                                                                                     mock(ItemSet.class),
+                                                                                     mock(Status.class));
+        synchronization.setProgressListener(new RecordingProgressListener() {
+            @Override
+            public void numberOfItems(int numberOfItems)
+            {
+                throw exception;
+            }
+        });
+        synchronization.setProgressBufferSize(16);
+        
+        assertSame(exception, assertThrows(IllegalStateException.class, () -> synchronization.synchronize(Set.of("1"))));
+        assertEquals(1, synchronization.getStatistics().getFinishedItems());
+    }
+    
+    /**
+     * Deliberately not thread safe.
+     */
+    private static class RecordingProgressListener implements ProgressListener
+    {
+        private final List<String> events = new ArrayList<>();
+        private final Set<Thread> threads = new HashSet<>();
+        
+        @Override
+        public void numberOfItems(int numberOfItems)
+        {
+            record("numberOfItems " + numberOfItems);
+        }
+        
+        @Override
+        public void synchronizationStarted(String itemId)
+        {
+            record("started " + itemId);
+        }
+        
+        @Override
+        public void synchronizationFinished(String itemId)
+        {
+            record("finished " + itemId);
+        }
+        
+        @Override
+        public void synchronizationFailed(String itemId, Throwable exception)
+        {
+            record("failed " + itemId);
+        }
+        
+        private void record(String event)
+        {
+            events.add(event);
+            threads.add(Thread.currentThread());
+        }
+    }
+}
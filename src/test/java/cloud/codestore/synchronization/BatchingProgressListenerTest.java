@@ -0,0 +1,106 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The batching progress listener")
+class BatchingProgressListenerTest
+{
+    private List<ProgressBatch> batches;
+    
+    @BeforeEach
+    void setUp()
+    {
+        batches = new ArrayList<>();
+    }
+    
+    @Test
+    @DisplayName("delivers a batch every n items")
+    void deliverEveryNItems()
+    {
+        BatchingProgressListener progressListener = new BatchingProgressListener(batches::add, 3, 60000);
+        progressListener.numberOfItems(7);
+        for(int i = 0; i < 7; i++)
+        {
+            progressListener.synchronizationStarted(String.valueOf(i));
+            progressListener.synchronizationFinished(String.valueOf(i));
+        }
+        
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).getFinishedItems());
+        assertEquals(6, batches.get(1).getTotalFinishedItems());
+        assertEquals(7, batches.get(1).getNumberOfItems());
+        
+        progressListener.flush();
+        assertEquals(3, batches.size());
+        assertEquals(1, batches.get(2).getFinishedItems());
+        assertEquals(7, batches.get(2).getTotalFinishedItems());
+    }
+    
+    @Test
+    @DisplayName("delivers the failures")
+    void deliverFailures()
+    {
+        Exception exception = new UnresolvedConflictException();
+        BatchingProgressListener progressListener = new BatchingProgressListener(batches::add, 2, 60000);
+        progressListener.numberOfItems(2);
+        progressListener.synchronizationFinished("1");
+        progressListener.synchronizationFailed("2", exception);
+        
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).getFinishedItems());
+        assertEquals(1, batches.get(0).getFailedItems());
+        assertEquals(Map.of("2", exception), batches.get(0).getFailures());
+    }
+    
+    @Test
+    @DisplayName("delivers a batch after the interval has passed")
+    void deliverAfterInterval() throws InterruptedException
+    {
+        BatchingProgressListener progressListener = new BatchingProgressListener(batches::add, 1000, 50);
+        progressListener.numberOfItems(1000);
+        progressListener.synchronizationFinished("1");
+        assertTrue(batches.isEmpty());
+        
+        Thread.sleep(100);
+        progressListener.synchronizationFinished("2");
+        
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).getFinishedItems());
+    }
+    
+    @Test
+    @DisplayName("delivers a batch after the interval has passed when the next item starts")
+    void deliverOnStart() throws InterruptedException
+    {
+        BatchingProgressListener progressListener = new BatchingProgressListener(batches::add, 1000, 50);
+        progressListener.numberOfItems(1000);
+        progressListener.synchronizationStarted("1");
+        progressListener.synchronizationFinished("1");
+        assertTrue(batches.isEmpty());
+        
+        Thread.sleep(100);
+        progressListener.synchronizationStarted("2");
+        
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).getFinishedItems());
+    }
+    
+    @Test
+    @DisplayName("does not deliver empty batches when an item starts")
+    void noEmptyBatchOnStart()
+    {
+        BatchingProgressListener progressListener = new BatchingProgressListener(batches::add, 1000, 0);
+        progressListener.numberOfItems(1000);
+        progressListener.synchronizationStarted("1");
+        
+        assertTrue(batches.isEmpty());
+    }
+}
@@ -3,13 +3,21 @@ package cloud.codestore.synchronization;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -125,6 +133,138 @@ class ConcurrentItemProcessorTest
         assertEquals(3, finishedTasks.get());
     }
     
+    @Test
+    @DisplayName("processes items in the order of their priority")
+    void prioritizedProcessing() throws Exception
+    {
+        ItemProcessor itemProcessor = createProcessor(1);
+        itemProcessor.setPriority(Comparator.reverseOrder());
+        itemProcessor.process(Set.of("1", "2", "3", "4", "5"));
+        
+        InOrder inOrder = inOrder(synchronization);
+        inOrder.verify(synchronization).synchronizeItem("5");
+        inOrder.verify(synchronization).synchronizeItem("4");
+        inOrder.verify(synchronization).synchronizeItem("3");
+        inOrder.verify(synchronization).synchronizeItem("2");
+        inOrder.verify(synchronization).synchronizeItem("1");
+    }
+    
+    @Test
+    @DisplayName("uses an external executor without shutting it down")
+    void externalExecutor() throws Exception
+    {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try
+        {
+            AtomicInteger finishedTasks = new AtomicInteger();
+            doAnswer(invocation -> {
+                Thread.sleep(200);
+                finishedTasks.incrementAndGet();
+                return null;
+            }).when(synchronization).synchronizeItem(anyString());
+            
+            ItemProcessor itemProcessor = new ConcurrentItemProcessor(synchronization,
+                                                                      new DefaultProgressListener(),
+                                                                      2,
+                                                                      executorService);
+            itemProcessor.process(Set.of("1", "2", "3"));
+            assertEquals(3, finishedTasks.get());
+            
+            itemProcessor.process(Set.of("4"));
+            assertEquals(4, finishedTasks.get());
+            assertFalse(executorService.isShutdown());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+    
+    @Test
+    @DisplayName("returns when cancelled while using an external executor")
+    void cancelWithExternalExecutor() throws Exception
+    {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try
+        {
+            ItemProcessor itemProcessor = new ConcurrentItemProcessor(synchronization,
+                                                                      new DefaultProgressListener(),
+                                                                      1,
+                                                                      executorService);
+            doAnswer(invocation -> {
+                itemProcessor.cancel();
+                return null;
+            }).when(synchronization).synchronizeItem(anyString());
+            
+            itemProcessor.process(Set.of("1", "2", "3"));
+            verify(synchronization, times(1)).synchronizeItem(anyString());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+    
+    @Test
+    @DisplayName("waits for all running items if no timeout is set")
+    void waitForAllItems() throws Exception
+    {
+        AtomicInteger finishedTasks = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            finishedTasks.incrementAndGet();
+            return null;
+        }).when(synchronization).synchronizeItem(anyString());
+        
+        Thread releaser = new Thread(() -> {
+            try
+            {
+                running.await();
+                release.countDown();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        releaser.start();
+        
+        ItemProcessor itemProcessor = createProcessor(2);
+        itemProcessor.process(Set.of("1", "2", "3", "4", "5"));
+        
+        assertEquals(5, finishedTasks.get());
+        assertFalse(itemProcessor.isTimedOut());
+    }
+    
+    @Test
+    @DisplayName("returns when the timeout has elapsed")
+    void timeout() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(synchronization).synchronizeItem(anyString());
+        
+        ItemProcessor itemProcessor = createProcessor(2);
+        itemProcessor.setTimeout(Duration.ofMillis(200));
+        
+        try
+        {
+            itemProcessor.process(Set.of("1", "2", "3", "4", "5"));
+            
+            assertTrue(itemProcessor.isTimedOut());
+            verify(synchronization, Mockito.timeout(5000).times(2)).synchronizeItem(anyString());
+        }
+        finally
+        {
+            release.countDown();
+        }
+    }
+    
     private ItemProcessor createProcessor(int threadCount)
     {
         return new ConcurrentItemProcessor(synchronization, new DefaultProgressListener(), threadCount);
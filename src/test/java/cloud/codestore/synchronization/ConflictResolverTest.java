@@ -7,6 +7,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 
@@ -91,6 +92,25 @@ class ConflictResolverTest
         verify(status).put(ITEM_ID, "etagC");
     }
     
+    @Test
+    @DisplayName("does not keep the conflict after it was resolved")
+    void clearContextAfterResolving() throws Exception
+    {
+        conflictResolver = new ConflictResolver<>() {
+            @Override
+            public void resolve(String itemId, String etagA, String etagB) throws Exception
+            {
+                applyItemA();
+            }
+        };
+        
+        Conflict<Object> conflict = new Conflict<>(ITEM_ID, ETAG_A, ETAG_B, itemSetA, itemSetB, status);
+        ConflictResolver.asConflictHandler(conflictResolver).resolve(conflict);
+        
+        verify(itemSetB).updateItem(ITEM_ID, item);
+        assertThrows(NullPointerException.class, () -> conflictResolver.getItemA());
+    }
+    
     private ConflictResolver<Object> init(ConflictResolver<Object> conflictResolver)
     {
         conflictResolver.setItemSets(itemSetA, itemSetB, status);
@@ -0,0 +1,107 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("If the deduplication is enabled")
+class DeduplicationTest
+{
+    private static final String EXISTING_ID = "existing";
+    private static final String NEW_ID = "new";
+    private static final String ETAG = "etag";
+    
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private CopyableItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    private MutableItemSynchronization<Object> synchronization;
+    
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        lenient().when(status.getEtag(EXISTING_ID)).thenReturn(ETAG);
+        lenient().when(status.contains(EXISTING_ID)).thenReturn(true);
+        lenient().when(itemSetA.contains(EXISTING_ID)).thenReturn(true);
+        lenient().when(itemSetA.getEtag(EXISTING_ID)).thenReturn(ETAG);
+        
+        when(itemSetA.contains(NEW_ID)).thenReturn(true);
+        when(itemSetB.contains(NEW_ID)).thenReturn(false);
+        when(status.contains(NEW_ID)).thenReturn(false);
+        when(itemSetA.getEtag(NEW_ID)).thenReturn(ETAG);
+        
+        synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.setDeduplication(true);
+    }
+    
+    @Test
+    @DisplayName("an item with the same etag is copied on the target side")
+    void copyExistingItem() throws Exception
+    {
+        when(itemSetB.contains(EXISTING_ID)).thenReturn(true);
+        when(itemSetB.getEtag(EXISTING_ID)).thenReturn(ETAG);
+        
+        synchronization.synchronize(Set.of(EXISTING_ID, NEW_ID));
+        
+        verify(itemSetB).copyFrom(EXISTING_ID, NEW_ID);
+        verify(itemSetA, never()).getItem(NEW_ID);
+        verify(itemSetB, never()).addItem(eq(NEW_ID), any());
+        verify(status).put(NEW_ID, ETAG);
+    }
+    
+    @Test
+    @DisplayName("an item is transferred if the existing item was changed on the target side")
+    void transferIfChanged() throws Exception
+    {
+        Object item = new Object();
+        when(itemSetA.getItem(NEW_ID)).thenReturn(item);
+        when(itemSetB.contains(EXISTING_ID)).thenReturn(true);
+        when(itemSetB.getEtag(EXISTING_ID)).thenReturn("changed");
+        
+        synchronization.synchronize(Set.of(EXISTING_ID, NEW_ID));
+        
+        verify(itemSetB, never()).copyFrom(any(), any());
+        verify(itemSetB).addItem(NEW_ID, item);
+        verify(status).put(NEW_ID, ETAG);
+    }
+    
+    @Test
+    @DisplayName("an item is transferred if the existing item was deleted on the target side")
+    void transferIfDeleted() throws Exception
+    {
+        Object item = new Object();
+        when(itemSetA.getItem(NEW_ID)).thenReturn(item);
+        when(itemSetB.contains(EXISTING_ID)).thenReturn(false);
+        
+        synchronization.synchronize(Set.of(EXISTING_ID, NEW_ID));
+        
+        verify(itemSetB, never()).copyFrom(any(), any());
+        verify(itemSetB).addItem(NEW_ID, item);
+    }
+    
+    @Test
+    @DisplayName("no index is built for a single item")
+    void singleItem() throws Exception
+    {
+        Object item = new Object();
+        when(itemSetA.getItem(NEW_ID)).thenReturn(item);
+        
+        synchronization.synchronize(NEW_ID);
+        
+        verify(status, never()).getItemIds();
+        verify(status, never()).getEtag(EXISTING_ID);
+        verify(itemSetB, never()).copyFrom(any(), any());
+        verify(itemSetB).addItem(NEW_ID, item);
+    }
+}
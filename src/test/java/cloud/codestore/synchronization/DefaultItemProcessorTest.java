@@ -4,13 +4,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
 
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -66,4 +70,31 @@ class DefaultItemProcessorTest
         assertTrue(itemProcessor.isCanceled());
         verify(synchronization, times(3)).synchronizeItem(anyString());
     }
-}
\ No newline at end of file
+    
+    @Test
+    @DisplayName("processes items in the order of their priority")
+    void prioritizedProcessing() throws Exception
+    {
+        itemProcessor.setPriority(Comparator.reverseOrder());
+        itemProcessor.process(Set.of("1", "2", "3", "4", "5"));
+        
+        InOrder inOrder = inOrder(synchronization);
+        inOrder.verify(synchronization).synchronizeItem("5");
+        inOrder.verify(synchronization).synchronizeItem("4");
+        inOrder.verify(synchronization).synchronizeItem("3");
+        inOrder.verify(synchronization).synchronizeItem("2");
+        inOrder.verify(synchronization).synchronizeItem("1");
+    }
+    
+    @Test
+    @DisplayName("does not start further items after the timeout has elapsed")
+    void timeout() throws Exception
+    {
+        itemProcessor.setTimeout(Duration.ofNanos(1));
+        itemProcessor.process(Set.of("1", "2", "3", "4", "5"));
+        
+        assertTrue(itemProcessor.isTimedOut());
+        assertFalse(itemProcessor.isCanceled());
+        verify(synchronization, times(1)).synchronizeItem(anyString());
+    }
+}
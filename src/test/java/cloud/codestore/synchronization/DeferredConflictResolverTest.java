@@ -0,0 +1,155 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("A deferred conflict resolver")
+class DeferredConflictResolverTest
+{
+    private static final String ITEM_ID = "12345";
+    private static final String ETAG_A = "etagA";
+    private static final String ETAG_B = "etagB";
+    
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private ItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    @Mock
+    private Object item;
+    
+    private DeferredConflictResolver<Object> deferredConflictResolver;
+    
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        deferredConflictResolver = new DeferredConflictResolver<>();
+        deferredConflictResolver.setItemSets(itemSetA, itemSetB, status);
+        
+        lenient().when(itemSetA.contains(ITEM_ID)).thenReturn(true);
+        lenient().when(itemSetB.contains(ITEM_ID)).thenReturn(true);
+        lenient().when(itemSetA.getEtag(ITEM_ID)).thenReturn(ETAG_A);
+        lenient().when(itemSetB.getEtag(ITEM_ID)).thenReturn(ETAG_B);
+        lenient().when(itemSetA.getItem(ITEM_ID)).thenReturn(item);
+    }
+    
+    @Test
+    @DisplayName("records conflicts without touching the items")
+    void recordConflict() throws Exception
+    {
+        deferredConflictResolver.resolve(ITEM_ID, ETAG_A, ETAG_B);
+        
+        assertEquals(List.of(new DeferredConflict(ITEM_ID, ETAG_A, ETAG_B)), deferredConflictResolver.getConflicts());
+        verifyNoInteractions(itemSetA, itemSetB, status);
+    }
+    
+    @Test
+    @DisplayName("resolves recorded conflicts later")
+    void resolveLater() throws Exception
+    {
+        deferredConflictResolver.resolve(ITEM_ID, ETAG_A, ETAG_B);
+        
+        Map<String, Exception> failures = deferredConflictResolver.resolveAll(applyItemA(), 4);
+        
+        assertTrue(failures.isEmpty());
+        assertTrue(deferredConflictResolver.getConflicts().isEmpty());
+        verify(itemSetB).updateItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, ETAG_A);
+    }
+    
+    @Test
+    @DisplayName("resolves recorded conflicts with a conflict handler")
+    void resolveWithConflictHandler() throws Exception
+    {
+        deferredConflictResolver.resolve(ITEM_ID, ETAG_A, ETAG_B);
+        
+        Map<String, Exception> failures = deferredConflictResolver.resolveAll(Conflict::applyItemA, 4);
+        
+        assertTrue(failures.isEmpty());
+        verify(itemSetB).updateItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, ETAG_A);
+    }
+    
+    @Test
+    @DisplayName("discards conflicts of items which were changed in the meantime")
+    void discardOutdatedConflicts() throws Exception
+    {
+        when(itemSetB.getEtag(ITEM_ID)).thenReturn("newEtag");
+        deferredConflictResolver.resolve(ITEM_ID, ETAG_A, ETAG_B);
+        
+        Map<String, Exception> failures = deferredConflictResolver.resolveAll(applyItemA(), 1);
+        
+        assertTrue(failures.isEmpty());
+        assertTrue(deferredConflictResolver.getConflicts().isEmpty());
+        verify(itemSetB, never()).updateItem(ITEM_ID, item);
+        verify(status, never()).put(anyString(), anyString());
+    }
+    
+    @Test
+    @DisplayName("keeps conflicts which could not be resolved")
+    void keepUnresolvedConflicts()
+    {
+        deferredConflictResolver.resolve(ITEM_ID, ETAG_A, ETAG_B);
+        
+        Map<String, Exception> failures = deferredConflictResolver.resolveAll(new ConflictResolver<>() {
+            @Override
+            public void resolve(String itemId, String etagA, String etagB) throws Exception
+            {
+                throw new UnresolvedConflictException();
+            }
+        }, 1);
+        
+        assertTrue(failures.get(ITEM_ID) instanceof UnresolvedConflictException);
+        assertEquals(1, deferredConflictResolver.getConflicts().size());
+    }
+    
+    @Test
+    @DisplayName("can save and load the recorded conflicts")
+    void saveAndLoad() throws IOException
+    {
+        Path file = Files.createTempFile("conflicts", "csv");
+        try
+        {
+            deferredConflictResolver.resolve(ITEM_ID, ETAG_A, ETAG_B);
+            deferredConflictResolver.resolve("67890", null, ETAG_B);
+            deferredConflictResolver.save(file);
+            
+            DeferredConflictResolver<Object> loadedResolver = new DeferredConflictResolver<>();
+            loadedResolver.load(file);
+            
+            assertEquals(2, loadedResolver.getConflicts().size());
+            assertTrue(loadedResolver.getConflicts().contains(new DeferredConflict(ITEM_ID, ETAG_A, ETAG_B)));
+            assertTrue(loadedResolver.getConflicts().contains(new DeferredConflict("67890", null, ETAG_B)));
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+    
+    private ConflictResolver<Object> applyItemA()
+    {
+        return new ConflictResolver<>() {
+            @Override
+            public void resolve(String itemId, String etagA, String etagB) throws Exception
+            {
+                applyItemA();
+            }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("If the etag prefetch is enabled")
+class EtagPrefetchTest
+{
+    private static final Set<String> ITEM_IDS = Set.of("1", "2", "3");
+    private static final String ETAG = "etag";
+    
+    @Mock
+    private BulkEtagItemSet<Object> itemSetA;
+    @Mock
+    private BulkEtagItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    private MutableItemSynchronization<Object> synchronization;
+    
+    @BeforeEach
+    void setUp()
+    {
+        when(itemSetA.contains(anyString())).thenReturn(true);
+        when(itemSetB.contains(anyString())).thenReturn(true);
+        when(status.contains(anyString())).thenReturn(true);
+        when(status.getEtag(anyString())).thenReturn(ETAG);
+        
+        synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.setEtagPrefetchSize(2);
+    }
+    
+    @Test
+    @DisplayName("the etags are read in chunks instead of individually")
+    void prefetchInChunks() throws Exception
+    {
+        when(itemSetA.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        when(itemSetB.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        
+        synchronization.synchronize(ITEM_IDS);
+        
+        verify(itemSetA, times(2)).getEtags(any());
+        verify(itemSetB, times(2)).getEtags(any());
+        verify(itemSetA, never()).getEtag(anyString());
+        verify(itemSetB, never()).getEtag(anyString());
+        verify(status, never()).put(anyString(), anyString());
+    }
+    
+    @Test
+    @DisplayName("the etags are read individually if the prefetch failed")
+    void fallbackToSingleEtags() throws Exception
+    {
+        when(itemSetA.getEtags(any())).thenThrow(new IOException());
+        when(itemSetB.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        when(itemSetA.getEtag(anyString())).thenReturn(ETAG);
+        
+        synchronization.synchronize(ITEM_IDS);
+        
+        verify(itemSetA, times(3)).getEtag(anyString());
+        verify(itemSetB, never()).getEtag(anyString());
+        assertEquals(2, synchronization.getStatistics().getFailedEtagPrefetches());
+    }
+    
+    @Test
+    @DisplayName("the etags of a chunk are read just before its items are processed")
+    void prefetchAhead() throws Exception
+    {
+        when(itemSetA.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        when(itemSetB.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        
+        synchronization.synchronize(new LinkedHashSet<>(List.of("1", "2", "3")));
+        
+        InOrder inOrder = inOrder(itemSetA);
+        inOrder.verify(itemSetA).getEtags(List.of("1", "2"));
+        inOrder.verify(itemSetA).contains("2");
+        inOrder.verify(itemSetA).getEtags(List.of("3"));
+        inOrder.verify(itemSetA).contains("3");
+    }
+    
+    @Test
+    @DisplayName("the prefetched etags are discarded after the synchronization")
+    void discardEtags() throws Exception
+    {
+        when(itemSetA.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        when(itemSetB.getEtags(any())).thenAnswer(invocation -> etags(invocation.getArgument(0)));
+        synchronization.synchronize(ITEM_IDS);
+        
+        when(itemSetA.getEtag("1")).thenReturn(ETAG);
+        when(itemSetB.getEtag("1")).thenReturn(ETAG);
+        synchronization.synchronizeItem("1");
+        
+        verify(itemSetA).getEtag("1");
+        verify(itemSetB).getEtag("1");
+    }
+    
+    private static Map<String, String> etags(Collection<String> itemIds)
+    {
+        Map<String, String> etags = new HashMap<>();
+        for(String itemId : itemIds)
+            etags.put(itemId, ETAG);
+        
+        return etags;
+    }
+}
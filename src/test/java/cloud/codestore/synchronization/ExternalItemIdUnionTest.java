@@ -0,0 +1,137 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The external item ID union")
+class ExternalItemIdUnionTest
+{
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private ItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    private Path directory;
+    
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("union");
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        Files.delete(directory);
+    }
+    
+    @Test
+    @DisplayName("contains every ID of all sources exactly once in sorted order")
+    void sortedUnion() throws IOException
+    {
+        when(itemSetA.streamItemIds()).thenReturn(Stream.of("d", "a", "c", "b"));
+        when(itemSetB.streamItemIds()).thenReturn(Stream.of("c", "e", "a"));
+        when(status.streamItemIds()).thenReturn(Stream.of("f", "b"));
+        
+        try(ExternalItemIdUnion union = create(id -> true, 2))
+        {
+            assertEquals(6, union.size());
+            assertEquals(List.of("a", "b", "c", "d", "e", "f"), new ArrayList<>(union));
+        }
+    }
+    
+    @Test
+    @DisplayName("merges more runs than can be opened at once")
+    void multiPassMerge() throws IOException
+    {
+        List<String> itemIds = IntStream.range(0, 500).mapToObj(i -> String.format("%04d", i)).collect(Collectors.toList());
+        when(itemSetA.streamItemIds()).thenReturn(itemIds.stream());
+        when(itemSetB.streamItemIds()).thenReturn(itemIds.stream().filter(id -> id.endsWith("0")));
+        when(status.streamItemIds()).thenReturn(Stream.empty());
+        
+        try(ExternalItemIdUnion union = create(id -> true, 3))
+        {
+            assertEquals(500, union.size());
+            assertEquals(itemIds, new ArrayList<>(union));
+        }
+    }
+    
+    @Test
+    @DisplayName("skips IDs which do not pass the filter")
+    void filter() throws IOException
+    {
+        when(itemSetA.streamItemIds()).thenReturn(Stream.of("1", "2", "3"));
+        when(itemSetB.streamItemIds()).thenReturn(Stream.of("4"));
+        when(status.streamItemIds()).thenReturn(Stream.empty());
+        
+        try(ExternalItemIdUnion union = create(id -> !id.equals("2"), 10))
+        {
+            assertEquals(List.of("1", "3", "4"), new ArrayList<>(union));
+        }
+    }
+    
+    @Test
+    @DisplayName("deletes its temporary files when it is closed")
+    void deleteTemporaryFiles() throws IOException
+    {
+        when(itemSetA.streamItemIds()).thenReturn(Stream.of("1", "2", "3"));
+        when(itemSetB.streamItemIds()).thenReturn(Stream.empty());
+        when(status.streamItemIds()).thenReturn(Stream.empty());
+        
+        ExternalItemIdUnion union = create(id -> true, 1);
+        union.iterator().next();
+        union.close();
+        
+        try(Stream<Path> files = Files.list(directory))
+        {
+            assertEquals(0, files.count());
+        }
+    }
+    
+    @Test
+    @DisplayName("is used by the synchronization if it is enabled")
+    void synchronize()
+    {
+        when(itemSetA.streamItemIds()).thenReturn(Stream.of("1", "2"));
+        when(itemSetB.streamItemIds()).thenReturn(Stream.of("2", "3"));
+        when(status.streamItemIds()).thenReturn(Stream.of("3"));
+        
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.setExternalItemIdUnion(directory, 2);
+        SyncResult result = synchronization.synchronize();
+        
+        assertEquals(3, synchronization.getStatistics().getNumberOfItems());
+        assertEquals(3, result.getFinishedItems());
+        verify(itemSetA, never()).getItemIds();
+        verify(status, never()).getItemIds();
+        verify(status).contains("1");
+        verify(status).contains("2");
+        verify(status).contains("3");
+    }
+    
+    private ExternalItemIdUnion create(Predicate<String> filter, int runSize) throws IOException
+    {
+        return ExternalItemIdUnion.create(List.of(itemSetA, itemSetB), status, filter, directory, runSize);
+    }
+}
@@ -0,0 +1,43 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The item ID collector")
+class ItemIdCollectorTest
+{
+    @Test
+    @DisplayName("returns an empty collection if no ID was added")
+    void empty()
+    {
+        assertTrue(new ItemIdCollector().toCollection().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("collects the IDs added by multiple threads")
+    void concurrentAdd() throws InterruptedException
+    {
+        ItemIdCollector collector = new ItemIdCollector();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for(int i = 0; i < 10_000; i++)
+        {
+            String itemId = String.valueOf(i);
+            executorService.execute(() -> collector.add(itemId));
+        }
+        
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        
+        Set<String> itemIds = new HashSet<>(collector.toCollection());
+        assertEquals(10_000, collector.toCollection().size());
+        assertEquals(10_000, itemIds.size());
+    }
+}
@@ -0,0 +1,81 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The lazy union of item IDs")
+class ItemIdUnionTest
+{
+    private static final Set<String> IDS_A = new LinkedHashSet<>(List.of("1", "2", "3"));
+    private static final Set<String> IDS_B = new LinkedHashSet<>(List.of("2", "4"));
+    private static final Set<String> IDS_STATUS = new LinkedHashSet<>(List.of("1", "4", "5"));
+    
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private ItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    @BeforeEach
+    void setUp()
+    {
+        when(itemSetA.getItemIds()).thenReturn(IDS_A);
+        when(itemSetB.getItemIds()).thenReturn(IDS_B);
+        when(status.getItemIds()).thenReturn(IDS_STATUS);
+        lenient().when(itemSetA.contains(anyString())).thenAnswer(invocation -> IDS_A.contains(invocation.getArgument(0)));
+        lenient().when(itemSetB.contains(anyString())).thenAnswer(invocation -> IDS_B.contains(invocation.getArgument(0)));
+        lenient().when(status.contains(anyString())).thenAnswer(invocation -> IDS_STATUS.contains(invocation.getArgument(0)));
+    }
+    
+    @Test
+    @DisplayName("returns every ID exactly once")
+    void iterateUnion()
+    {
+        ItemIdUnion union = new ItemIdUnion(List.of(itemSetA, itemSetB), status, itemId -> true);
+        
+        assertEquals(List.of("1", "2", "3", "4", "5"), new ArrayList<>(union));
+        assertEquals(8, union.size());
+        assertTrue(union.contains("4"));
+        assertFalse(union.contains("6"));
+    }
+    
+    @Test
+    @DisplayName("skips the IDs which do not pass the filter")
+    void filter()
+    {
+        ItemIdUnion union = new ItemIdUnion(List.of(itemSetA, itemSetB), status, itemId -> !itemId.equals("2"));
+        
+        assertEquals(List.of("1", "3", "4", "5"), new ArrayList<>(union));
+        assertFalse(union.contains("2"));
+    }
+    
+    @Test
+    @DisplayName("is used by the synchronization if enabled")
+    void lazySynchronization() throws Exception
+    {
+        MutableItemSynchronization<Object> synchronization = spy(new MutableItemSynchronization<>(itemSetA,
+                                                                                                  itemSetB,
+                                                                                                  status));
+        doNothing().when(synchronization).synchronizeItem(anyString());
+        synchronization.setLazyItemIdUnion(true);
+        synchronization.synchronize();
+        
+        verify(synchronization, times(5)).synchronizeItem(anyString());
+        assertEquals(5, synchronization.getStatistics().getFinishedItems());
+        assertEquals(8, synchronization.getStatistics().getNumberOfItems());
+    }
+}
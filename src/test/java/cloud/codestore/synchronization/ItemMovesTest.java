@@ -0,0 +1,50 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("The item moves")
+class ItemMovesTest
+{
+    @Test
+    @DisplayName("pair created and deleted items with the same etag")
+    void pairByEtag()
+    {
+        ItemMoves moves = new ItemMoves();
+        moves.created("new", "etag");
+        moves.deleted("old", "etag");
+        moves.created("created", "other");
+        moves.pair();
+        
+        Assertions.assertTrue(moves.isTarget("new"));
+        Assertions.assertTrue(moves.isSource("old"));
+        Assertions.assertEquals("old", moves.getSource("new"));
+        Assertions.assertFalse(moves.isTarget("created"));
+    }
+    
+    @Test
+    @DisplayName("pair every item at most once")
+    void pairOnce()
+    {
+        ItemMoves moves = new ItemMoves();
+        moves.created("new", "etag");
+        moves.deleted("old1", "etag");
+        moves.deleted("old2", "etag");
+        moves.pair();
+        
+        Assertions.assertTrue(moves.isSource("old1") ^ moves.isSource("old2"));
+    }
+    
+    @Test
+    @DisplayName("ignore items without etag")
+    void ignoreMissingEtag()
+    {
+        ItemMoves moves = new ItemMoves();
+        moves.created("new", null);
+        moves.deleted("old", null);
+        moves.pair();
+        
+        Assertions.assertFalse(moves.isTarget("new"));
+    }
+}
@@ -0,0 +1,56 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("An item partition")
+class ItemPartitionTest
+{
+    private static final int PARTITION_COUNT = 4;
+    
+    @Test
+    @DisplayName("assigns every item to exactly one partition")
+    void disjointPartitions()
+    {
+        List<ItemPartition> partitions = ItemPartition.all(PARTITION_COUNT);
+        for(int i = 0; i < 1000; i++)
+        {
+            String itemId = "folder/subfolder/item" + i;
+            long matchingPartitions = partitions.stream().filter(partition -> partition.contains(itemId)).count();
+            assertEquals(1, matchingPartitions);
+        }
+    }
+    
+    @Test
+    @DisplayName("spreads items with a common prefix across all partitions")
+    void evenDistribution()
+    {
+        int[] itemsPerPartition = new int[PARTITION_COUNT];
+        for(int i = 0; i < 10000; i++)
+            itemsPerPartition[ItemPartition.indexOf("folder/subfolder/item" + i, PARTITION_COUNT)]++;
+        
+        for(int count : itemsPerPartition)
+            assertTrue(count > 2000 && count < 3000);
+    }
+    
+    @Test
+    @DisplayName("uses a stable hash of the item ID")
+    void stableHash()
+    {
+        assertEquals(ItemPartition.indexOf("12345", 7), ItemPartition.indexOf(new String("12345"), 7));
+        assertEquals(ItemPartition.of(2, 3), ItemPartition.of(2, 3));
+    }
+    
+    @Test
+    @DisplayName("rejects invalid indices")
+    void invalidIndex()
+    {
+        assertThrows(IllegalArgumentException.class, () -> ItemPartition.of(3, 3));
+        assertThrows(IllegalArgumentException.class, () -> ItemPartition.of(-1, 3));
+        assertThrows(IllegalArgumentException.class, () -> ItemPartition.of(0, 0));
+    }
+}
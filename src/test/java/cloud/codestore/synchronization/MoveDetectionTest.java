@@ -0,0 +1,119 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("If the move detection is enabled")
+class MoveDetectionTest
+{
+    private static final String OLD_ID = "old";
+    private static final String NEW_ID = "new";
+    private static final String ETAG = "etag";
+    
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private MovableItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    private MutableItemSynchronization<Object> synchronization;
+    
+    @BeforeEach
+    void setUp()
+    {
+        when(itemSetA.getItemIds()).thenReturn(Set.of(NEW_ID));
+        when(itemSetB.getItemIds()).thenReturn(Set.of(OLD_ID));
+        when(status.getItemIds()).thenReturn(Set.of(OLD_ID));
+        
+        when(itemSetA.contains(NEW_ID)).thenReturn(true);
+        when(itemSetA.contains(OLD_ID)).thenReturn(false);
+        when(itemSetB.contains(NEW_ID)).thenReturn(false);
+        when(itemSetB.contains(OLD_ID)).thenReturn(true);
+        when(status.contains(NEW_ID)).thenReturn(false);
+        when(status.contains(OLD_ID)).thenReturn(true);
+        
+        synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.setMoveDetection(true);
+    }
+    
+    @Test
+    @DisplayName("an item which was renamed on A is moved on B")
+    void moveRenamedItem() throws Exception
+    {
+        when(itemSetA.getEtag(NEW_ID)).thenReturn(ETAG);
+        when(itemSetB.getEtag(OLD_ID)).thenReturn(ETAG);
+        when(status.getEtag(OLD_ID)).thenReturn(ETAG);
+        
+        synchronization.synchronize();
+        
+        verify(itemSetB).move(OLD_ID, NEW_ID);
+        verify(itemSetB, never()).addItem(eq(NEW_ID), any());
+        verify(itemSetB, never()).delete(OLD_ID);
+        verify(itemSetA, never()).getItem(NEW_ID);
+        verify(status).delete(OLD_ID);
+        verify(status).put(NEW_ID, ETAG);
+        Assertions.assertEquals(1, synchronization.getStatistics().getCount(SyncAction.MOVED_ON_B));
+    }
+    
+    @Test
+    @DisplayName("an item which was changed on B is not moved")
+    void doNotMoveChangedItem() throws Exception
+    {
+        Object item = new Object();
+        when(itemSetA.getEtag(NEW_ID)).thenReturn(ETAG);
+        when(itemSetA.getItem(NEW_ID)).thenReturn(item);
+        when(itemSetB.getEtag(OLD_ID)).thenReturn("changed");
+        when(status.getEtag(OLD_ID)).thenReturn(ETAG);
+        
+        synchronization.synchronize();
+        
+        verify(itemSetB, never()).move(any(), any());
+        verify(itemSetB).addItem(NEW_ID, item);
+        verify(itemSetB).delete(OLD_ID);
+    }
+    
+    @Test
+    @DisplayName("items with different etags are not moved")
+    void doNotMoveDifferentItems() throws Exception
+    {
+        Object item = new Object();
+        when(itemSetA.getEtag(NEW_ID)).thenReturn("other");
+        when(itemSetA.getItem(NEW_ID)).thenReturn(item);
+        when(itemSetB.getEtag(OLD_ID)).thenReturn(ETAG);
+        when(status.getEtag(OLD_ID)).thenReturn(ETAG);
+        
+        synchronization.synchronize();
+        
+        verify(itemSetB, never()).move(any(), any());
+        verify(itemSetB).addItem(NEW_ID, item);
+        verify(itemSetB).delete(OLD_ID);
+    }
+    
+    @Test
+    @DisplayName("a failed move leaves the old item in the status")
+    void failedMove() throws Exception
+    {
+        when(itemSetA.getEtag(NEW_ID)).thenReturn(ETAG);
+        when(itemSetB.getEtag(OLD_ID)).thenReturn(ETAG);
+        when(status.getEtag(OLD_ID)).thenReturn(ETAG);
+        doThrow(new IllegalStateException()).when(itemSetB).move(OLD_ID, NEW_ID);
+        
+        synchronization.synchronize();
+        
+        verify(itemSetB, never()).delete(OLD_ID);
+        verify(status, never()).delete(OLD_ID);
+        verify(status, never()).put(eq(NEW_ID), any());
+        Assertions.assertEquals(1, synchronization.getStatistics().getFailedItems());
+    }
+}
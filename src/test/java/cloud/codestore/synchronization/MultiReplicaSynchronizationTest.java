@@ -0,0 +1,205 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("If a replicated item")
+class MultiReplicaSynchronizationTest
+{
+    private static final String ITEM_ID = "12345";
+    private static final String ETAG = "etag";
+    
+    @Mock
+    private ItemSet<Object> replicaA;
+    @Mock
+    private ItemSet<Object> replicaB;
+    @Mock
+    private ItemSet<Object> replicaC;
+    @Mock
+    private Status status;
+    @Mock
+    private Object item;
+    
+    private MultiReplicaSynchronization<Object> synchronization;
+    
+    @BeforeEach
+    void setUp()
+    {
+        synchronization = new MultiReplicaSynchronization<>(List.of(replicaA, replicaB, replicaC), status);
+    }
+    
+    @Test
+    @DisplayName("was created on one replica - it is read once and created on all other replicas")
+    void createdOnOneReplica() throws Exception
+    {
+        when(replicaA.contains(ITEM_ID)).thenReturn(true);
+        when(replicaB.contains(ITEM_ID)).thenReturn(false);
+        when(replicaC.contains(ITEM_ID)).thenReturn(false);
+        when(status.contains(ITEM_ID)).thenReturn(false);
+        when(replicaA.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaA.getItem(ITEM_ID)).thenReturn(item);
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(replicaA, times(1)).getItem(ITEM_ID);
+        verify(replicaB).addItem(ITEM_ID, item);
+        verify(replicaC).addItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, ETAG);
+        assertEquals(1, synchronization.getStatistics().getCount(SyncAction.CREATED_ON_B));
+        assertEquals(0, synchronization.getStatistics().getCount(SyncAction.CREATED_ON_A));
+    }
+    
+    @Test
+    @DisplayName("was updated on one replica - it is updated on all other replicas")
+    void updatedOnOneReplica() throws Exception
+    {
+        when(replicaA.contains(ITEM_ID)).thenReturn(true);
+        when(replicaB.contains(ITEM_ID)).thenReturn(true);
+        when(replicaC.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        when(status.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaA.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaB.getEtag(ITEM_ID)).thenReturn("etagB");
+        when(replicaC.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaB.getItem(ITEM_ID)).thenReturn(item);
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(replicaA).updateItem(ITEM_ID, item);
+        verify(replicaC).updateItem(ITEM_ID, item);
+        verify(replicaB, never()).updateItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, "etagB");
+        assertEquals(1, synchronization.getStatistics().getCount(SyncAction.UPDATED_ON_A));
+        assertEquals(1, synchronization.getStatistics().getCount(SyncAction.UPDATED_ON_B));
+    }
+    
+    @Test
+    @DisplayName("was updated equally on two replicas - it is only updated on the remaining replica")
+    void updatedEquallyOnTwoReplicas() throws Exception
+    {
+        when(replicaA.contains(ITEM_ID)).thenReturn(true);
+        when(replicaB.contains(ITEM_ID)).thenReturn(true);
+        when(replicaC.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        when(status.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaA.getEtag(ITEM_ID)).thenReturn("newEtag");
+        when(replicaB.getEtag(ITEM_ID)).thenReturn("newEtag");
+        when(replicaC.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaA.getItem(ITEM_ID)).thenReturn(item);
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(replicaC).updateItem(ITEM_ID, item);
+        verify(replicaB, never()).updateItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, "newEtag");
+    }
+    
+    @Test
+    @DisplayName("was updated differently on two replicas - there is a conflict")
+    void conflict() throws Exception
+    {
+        when(replicaA.contains(ITEM_ID)).thenReturn(true);
+        when(replicaB.contains(ITEM_ID)).thenReturn(true);
+        when(replicaC.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        when(status.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaA.getEtag(ITEM_ID)).thenReturn("etagA");
+        when(replicaB.getEtag(ITEM_ID)).thenReturn("etagB");
+        lenient().when(replicaC.getEtag(ITEM_ID)).thenReturn(ETAG);
+        
+        assertThrows(UnresolvedConflictException.class, () -> synchronization.synchronizeItem(ITEM_ID));
+        verify(status, never()).put(anyString(), anyString());
+    }
+    
+    @Test
+    @DisplayName("was deleted on one replica - it is deleted on all other replicas and in the status")
+    void deletedOnOneReplica() throws Exception
+    {
+        when(replicaA.contains(ITEM_ID)).thenReturn(true);
+        when(replicaB.contains(ITEM_ID)).thenReturn(false);
+        when(replicaC.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(replicaA).delete(ITEM_ID);
+        verify(replicaC).delete(ITEM_ID);
+        verify(status).delete(ITEM_ID);
+        assertEquals(1, synchronization.getStatistics().getCount(SyncAction.DELETED_ON_A));
+        assertEquals(1, synchronization.getStatistics().getCount(SyncAction.DELETED_ON_B));
+    }
+    
+    @Test
+    @DisplayName("can be streamed - it is streamed to every other replica")
+    void streamedToReplicas() throws Exception
+    {
+        StreamingItemSet<Object> streamingA = mock(StreamingItemSet.class);
+        StreamingItemSet<Object> streamingB = mock(StreamingItemSet.class);
+        StreamingItemSet<Object> streamingC = mock(StreamingItemSet.class);
+        synchronization = new MultiReplicaSynchronization<>(List.of(streamingA, streamingB, streamingC), status);
+        
+        when(streamingA.contains(ITEM_ID)).thenReturn(true);
+        when(streamingB.contains(ITEM_ID)).thenReturn(false);
+        when(streamingC.contains(ITEM_ID)).thenReturn(false);
+        when(status.contains(ITEM_ID)).thenReturn(false);
+        when(streamingA.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(streamingA.getSize(ITEM_ID)).thenReturn(3L);
+        when(streamingA.openRead(ITEM_ID)).thenAnswer(invocation -> channel());
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(streamingA, never()).getItem(ITEM_ID);
+        verify(streamingA, times(2)).openRead(ITEM_ID);
+        verify(streamingB).write(eq(ITEM_ID), any(), eq(3L));
+        verify(streamingC).write(eq(ITEM_ID), any(), eq(3L));
+        verify(status).put(ITEM_ID, ETAG);
+    }
+    
+    private static ReadableByteChannel channel()
+    {
+        return Channels.newChannel(new ByteArrayInputStream(new byte[3]));
+    }
+    
+    @Test
+    @DisplayName("could not be written to a replica - the status is not updated")
+    void failedFanOut() throws Exception
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        synchronization.setFanOutExecutor(executorService);
+        
+        when(replicaA.contains(ITEM_ID)).thenReturn(true);
+        when(replicaB.contains(ITEM_ID)).thenReturn(false);
+        when(replicaC.contains(ITEM_ID)).thenReturn(false);
+        when(status.contains(ITEM_ID)).thenReturn(false);
+        when(replicaA.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(replicaA.getItem(ITEM_ID)).thenReturn(item);
+        doThrow(new IOException()).when(replicaC).addItem(ITEM_ID, item);
+        
+        try
+        {
+            assertThrows(IOException.class, () -> synchronization.synchronizeItem(ITEM_ID));
+            verify(replicaB).addItem(ITEM_ID, item);
+            verify(status, never()).put(anyString(), anyString());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+}
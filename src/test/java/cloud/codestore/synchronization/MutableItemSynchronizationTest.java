@@ -9,6 +9,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 
@@ -150,6 +151,26 @@ class MutableItemSynchronizationTest
         verify(conflictResolver).resolve(ITEM_ID, "etagA",  "etagB");
     }
     
+    @Test
+    @DisplayName("is looked up on both sides concurrently - it is synchronized the same way")
+    void parallelLookups() throws Exception
+    {
+        when(status.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(itemSetA.getEtag(ITEM_ID)).thenReturn("etagA");
+        when(itemSetB.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(itemSetA.getItem(ITEM_ID)).thenReturn(item);
+        
+        when(itemSetA.contains(ITEM_ID)).thenReturn(true);
+        when(itemSetB.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        
+        synchronization.setParallelLookups(true);
+        synchronization.synchronize();
+        
+        verify(itemSetB).updateItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, "etagA");
+    }
+    
     @Test
     @DisplayName("was updated on A - it must be updated on B and the status")
     void updatedOnA() throws Exception
@@ -230,6 +251,36 @@ class MutableItemSynchronizationTest
         verify(itemSetA, never()).delete(ITEM_ID);
     }
     
+    @Test
+    @DisplayName("produces a conflict - the conflict can be resolved by a ConflictHandler on another thread")
+    void conflictHandler() throws Exception
+    {
+        when(status.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(itemSetA.getEtag(ITEM_ID)).thenReturn("etagA");
+        when(itemSetB.getEtag(ITEM_ID)).thenReturn("etagB");
+        when(itemSetA.getItem(ITEM_ID)).thenReturn(item);
+        
+        when(itemSetA.contains(ITEM_ID)).thenReturn(true);
+        when(itemSetB.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        
+        synchronization.setConflictHandler(conflict -> CompletableFuture.runAsync(() -> {
+            try
+            {
+                Assertions.assertEquals(ITEM_ID, conflict.getItemId());
+                conflict.applyItemA();
+            }
+            catch(Exception exception)
+            {
+                throw new RuntimeException(exception);
+            }
+        }).join());
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(itemSetB).updateItem(ITEM_ID, item);
+        verify(status).put(ITEM_ID, "etagA");
+    }
+    
     @Test
     @DisplayName("produces a conflict an UnresolvedConflictException is thrown by default")
     void unresolvedConflictExceptionByDefault() throws Exception
@@ -0,0 +1,90 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The parallel lookup")
+class ParallelLookupTest
+{
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private ItemSet<Object> itemSetB;
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    
+    @AfterEach
+    void tearDown()
+    {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    @DisplayName("looks up both sides at the same time")
+    void concurrentLookups() throws Exception
+    {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ParallelLookup.Result<String> result = ParallelLookup.lookup(itemSetA, itemSetB, itemSet -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return itemSet == itemSetA ? "A" : "B";
+        }, executor);
+        
+        assertEquals("A", result.getA());
+        assertEquals("B", result.getB());
+    }
+    
+    @Test
+    @DisplayName("looks up both sides in the calling thread if it is not parallel")
+    void sequentialLookups() throws Exception
+    {
+        Thread caller = Thread.currentThread();
+        ParallelLookup.Result<Boolean> result = ParallelLookup.lookup(itemSetA, itemSetB,
+                                                                     itemSet -> Thread.currentThread() == caller,
+                                                                     null);
+        
+        assertTrue(result.getA());
+        assertTrue(result.getB());
+    }
+    
+    @Test
+    @DisplayName("throws the exception of the forked lookup")
+    void forkedLookupFails()
+    {
+        IOException exception = new IOException();
+        IOException thrown = assertThrows(IOException.class, () -> ParallelLookup.lookup(itemSetA, itemSetB, itemSet -> {
+            if(itemSet == itemSetB)
+                throw exception;
+            
+            return null;
+        }, executor));
+        
+        assertSame(exception, thrown);
+    }
+    
+    @Test
+    @DisplayName("looks up side B in the calling thread if the executor does not start it")
+    void busyExecutor() throws Exception
+    {
+        Thread caller = Thread.currentThread();
+        ParallelLookup.Result<Boolean> result = ParallelLookup.lookup(itemSetA, itemSetB,
+                                                                     itemSet -> Thread.currentThread() == caller,
+                                                                     runnable -> {});
+        
+        assertTrue(result.getA());
+        assertTrue(result.getB());
+    }
+}
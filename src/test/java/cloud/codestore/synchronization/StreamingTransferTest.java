@@ -0,0 +1,98 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("If both sides support streaming")
+class StreamingTransferTest
+{
+    private static final String ITEM_ID = "12345";
+    private static final String ETAG = "etag";
+    private static final long SIZE = 42;
+    
+    @Mock
+    private StreamingItemSet<Object> itemSetA;
+    @Mock
+    private StreamingItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    @Mock
+    private ReadableByteChannel channel;
+    
+    private MutableItemSynchronization<Object> synchronization;
+    
+    @BeforeEach
+    void setUp()
+    {
+        synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+    }
+    
+    @Test
+    @DisplayName("a created item is streamed to the opposite side")
+    void streamCreatedItem() throws Exception
+    {
+        when(itemSetA.contains(ITEM_ID)).thenReturn(true);
+        when(itemSetB.contains(ITEM_ID)).thenReturn(false);
+        when(status.contains(ITEM_ID)).thenReturn(false);
+        when(itemSetA.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(itemSetA.getSize(ITEM_ID)).thenReturn(SIZE);
+        when(itemSetA.openRead(ITEM_ID)).thenReturn(channel);
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(itemSetB).write(ITEM_ID, channel, SIZE);
+        verify(channel).close();
+        verify(itemSetA, never()).getItem(ITEM_ID);
+        verify(itemSetB, never()).addItem(eq(ITEM_ID), any());
+        verify(status).put(ITEM_ID, ETAG);
+    }
+    
+    @Test
+    @DisplayName("an updated item is streamed to the opposite side")
+    void streamUpdatedItem() throws Exception
+    {
+        when(itemSetA.contains(ITEM_ID)).thenReturn(true);
+        when(itemSetB.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(true);
+        when(status.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(itemSetA.getEtag(ITEM_ID)).thenReturn(ETAG);
+        when(itemSetB.getEtag(ITEM_ID)).thenReturn("etagB");
+        when(itemSetB.getSize(ITEM_ID)).thenReturn(SIZE);
+        when(itemSetB.openRead(ITEM_ID)).thenReturn(channel);
+        
+        synchronization.synchronizeItem(ITEM_ID);
+        
+        verify(itemSetA).write(ITEM_ID, channel, SIZE);
+        verify(channel).close();
+        verify(itemSetB, never()).getItem(ITEM_ID);
+        verify(itemSetA, never()).updateItem(eq(ITEM_ID), any());
+        verify(status).put(ITEM_ID, "etagB");
+    }
+    
+    @Test
+    @DisplayName("the channel is closed if the item could not be written")
+    void closeChannelOnError() throws Exception
+    {
+        when(itemSetA.contains(ITEM_ID)).thenReturn(false);
+        when(itemSetB.contains(ITEM_ID)).thenReturn(true);
+        when(status.contains(ITEM_ID)).thenReturn(false);
+        when(itemSetB.getSize(ITEM_ID)).thenReturn(SIZE);
+        when(itemSetB.openRead(ITEM_ID)).thenReturn(channel);
+        doThrow(new IOException()).when(itemSetA).write(ITEM_ID, channel, SIZE);
+        
+        synchronization.synchronize(ITEM_ID);
+        
+        verify(channel).close();
+        verify(status, never()).put(anyString(), anyString());
+    }
+}
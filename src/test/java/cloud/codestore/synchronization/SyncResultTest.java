@@ -0,0 +1,101 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The synchronization result")
+class SyncResultTest
+{
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private ItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    @Test
+    @DisplayName("contains the IDs of the changed, conflicting and failed items")
+    void collectItemIds() throws Exception
+    {
+        IOException exception = new IOException();
+        when(itemSetA.contains(anyString())).thenAnswer(invocation -> !invocation.getArgument(0).equals("onB"));
+        when(itemSetB.contains(anyString())).thenAnswer(invocation -> !invocation.getArgument(0).equals("onA") &&
+                                                                      !invocation.getArgument(0).equals("failing"));
+        when(status.contains(anyString())).thenReturn(false);
+        when(itemSetA.getEtag(anyString())).thenReturn("etagA");
+        when(itemSetB.getEtag(anyString())).thenReturn("etagB");
+        when(itemSetA.getItem(anyString())).thenAnswer(invocation -> {
+            if(invocation.getArgument(0).equals("failing"))
+                throw exception;
+            
+            return null;
+        });
+        
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.setConflictHandler(conflict -> {});
+        SyncResult result = synchronization.synchronize(Set.of("onA", "onB", "conflict", "failing"));
+        
+        assertTrue(result.isComplete());
+        assertEquals(3, result.getFinishedItems());
+        assertEquals(1, result.getFailedItems());
+        assertEquals(1, result.getCount(SyncAction.CREATED_ON_A));
+        assertEquals(List.of("onB"), result.getChangedItems(SyncAction.CREATED_ON_A));
+        assertEquals(List.of("onA"), result.getChangedItems(SyncAction.CREATED_ON_B));
+        assertEquals(Set.of("onA", "onB"), Set.copyOf(result.getChangedItems()));
+        assertEquals(List.of("conflict"), result.getConflictingItems());
+        assertSame(exception, result.getFailures().get("failing"));
+        assertTrue(result.hasFailures());
+    }
+    
+    @Test
+    @DisplayName("states whether the synchronization was canceled")
+    void canceled()
+    {
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.setProgressListener(new DefaultProgressListener()
+        {
+            @Override
+            public void synchronizationStarted(String itemId)
+            {
+                synchronization.cancel();
+            }
+        });
+        
+        SyncResult result = synchronization.synchronize(Set.of("1", "2"));
+        
+        assertTrue(result.isCanceled());
+        assertFalse(result.isComplete());
+        assertFalse(result.hasFailures());
+    }
+    
+    @Test
+    @DisplayName("states whether the synchronization timed out and the item sets are not flushed in this case")
+    void timedOut() throws Exception
+    {
+        ItemSet<Object> flushableItemSet = mock(ItemSet.class, withSettings().extraInterfaces(Flushable.class));
+        MutableItemSynchronization<Object> synchronization = spy(new MutableItemSynchronization<>(itemSetA,
+                                                                                                  flushableItemSet,
+                                                                                                  status));
+        doNothing().when(synchronization).synchronizeItem(anyString());
+        synchronization.setTimeout(Duration.ofNanos(1));
+        
+        SyncResult result = synchronization.synchronize(Set.of("1", "2"));
+        
+        assertTrue(result.isTimedOut());
+        assertFalse(result.isComplete());
+        verify((Flushable) flushableItemSet, never()).flush();
+    }
+}
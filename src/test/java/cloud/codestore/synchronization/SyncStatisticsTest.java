@@ -0,0 +1,124 @@
+package cloud.codestore.synchronization;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The synchronization statistics")
+class SyncStatisticsTest
+{
+    @Mock
+    private ItemSet<Object> itemSetA;
+    @Mock
+    private ItemSet<Object> itemSetB;
+    @Mock
+    private Status status;
+    
+    @Test
+    @DisplayName("count the processed items and the executed actions")
+    void countActions() throws Exception
+    {
+        when(itemSetA.contains(anyString())).thenAnswer(invocation -> !invocation.getArgument(0).equals("onB"));
+        when(itemSetB.contains(anyString())).thenAnswer(invocation -> invocation.getArgument(0).equals("onB"));
+        when(status.contains(anyString())).thenReturn(false);
+        when(itemSetA.getItem(anyString())).thenAnswer(invocation -> {
+            if(invocation.getArgument(0).equals("failing"))
+                throw new IOException();
+            
+            return null;
+        });
+        
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.synchronize(Set.of("onA", "onB", "failing"));
+        SyncStatistics statistics = synchronization.getStatistics();
+        
+        assertTrue(statistics.isFinished());
+        assertEquals(3, statistics.getNumberOfItems());
+        assertEquals(2, statistics.getFinishedItems());
+        assertEquals(1, statistics.getFailedItems());
+        assertEquals(3, statistics.getProcessedItems());
+        assertEquals(1, statistics.getCount(SyncAction.CREATED_ON_A));
+        assertEquals(1, statistics.getCount(SyncAction.CREATED_ON_B));
+        assertEquals(0, statistics.getCount(SyncAction.UPDATED_ON_B));
+        assertEquals(Duration.ZERO, statistics.getEstimatedTimeRemaining());
+    }
+    
+    @Test
+    @DisplayName("count the failed writes per side")
+    void countFailedWrites() throws Exception
+    {
+        when(itemSetA.contains(anyString())).thenAnswer(invocation -> invocation.getArgument(0).equals("toB"));
+        when(itemSetB.contains(anyString())).thenAnswer(invocation -> !invocation.getArgument(0).equals("toB"));
+        when(status.contains(anyString())).thenReturn(false);
+        doThrow(new IOException()).when(itemSetB).addItem(eq("toB"), any());
+        doThrow(new IOException()).when(itemSetA).addItem(eq("toA"), any());
+        
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.synchronize(Set.of("toA", "toB", "alsoToA"));
+        SyncStatistics statistics = synchronization.getStatistics();
+        
+        assertEquals(2, statistics.getFailedItems());
+        assertEquals(1, statistics.getFailedWritesOnA());
+        assertEquals(1, statistics.getFailedWritesOnB());
+        assertEquals(1, statistics.getCount(SyncAction.CREATED_ON_A));
+    }
+    
+    @Test
+    @DisplayName("count conflicts")
+    void countConflicts() throws Exception
+    {
+        when(itemSetA.contains("12345")).thenReturn(true);
+        when(itemSetB.contains("12345")).thenReturn(true);
+        when(status.contains("12345")).thenReturn(false);
+        when(itemSetA.getEtag("12345")).thenReturn("etagA");
+        when(itemSetB.getEtag("12345")).thenReturn("etagB");
+        
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, itemSetB, status);
+        synchronization.synchronize("12345");
+        
+        assertEquals(1, synchronization.getStatistics().getConflicts());
+        assertEquals(1, synchronization.getStatistics().getFailedItems());
+    }
+    
+    @Test
+    @DisplayName("calculate rates and the remaining time from the processed items")
+    void rates() throws InterruptedException
+    {
+        SyncStatistics statistics = new SyncStatistics(4);
+        assertNull(statistics.getEstimatedTimeRemaining());
+        assertEquals(Duration.ZERO, statistics.getAverageItemLatency());
+        
+        Thread.sleep(10);
+        statistics.itemFinished(100);
+        statistics.itemFinished(200);
+        statistics.bytesTransferred(1000);
+        
+        assertTrue(statistics.getItemsPerSecond() > 0);
+        assertTrue(statistics.getBytesPerSecond() > 0);
+        assertEquals(Duration.ofNanos(110), statistics.getAverageItemLatency());
+        assertNotNull(statistics.getEstimatedTimeRemaining());
+        assertTrue(statistics.getEstimatedTimeRemaining().compareTo(Duration.ZERO) > 0);
+        assertFalse(statistics.isFinished());
+    }
+    
+    @Test
+    @DisplayName("freeze the duration when the synchronization is finished")
+    void finish() throws InterruptedException
+    {
+        SyncStatistics statistics = new SyncStatistics(1);
+        statistics.finish();
+        Duration duration = statistics.getDuration();
+        Thread.sleep(5);
+        assertEquals(duration, statistics.getDuration());
+    }
+}
@@ -84,6 +84,35 @@ class SynchronizationSetupTest
         verify(progressListener).numberOfItems(6);
     }
 
+    @Test
+    @DisplayName("passes the aggregated progress to a batch progress listener")
+    void callBatchProgressListener()
+    {
+        BatchProgressListener batchProgressListener = mock(BatchProgressListener.class);
+        
+        synchronization.setProgressListener(batchProgressListener, 100, 1000);
+        synchronization.synchronize(Set.of("1", "2", "3"));
+        
+        verify(batchProgressListener).progress(argThat(batch -> batch.getTotalFinishedItems() == 3));
+    }
+    
+    @Test
+    @DisplayName("only synchronizes the items of the given partition")
+    void synchronizePartition() throws Exception
+    {
+        ItemPartition partition = ItemPartition.of(0, 2);
+        when(itemSetA.getItemIds()).thenReturn(Set.of("1", "2", "3"));
+        when(itemSetB.getItemIds()).thenReturn(Set.of("3", "4", "5"));
+        when(status.getItemIds()).thenReturn(Set.of("4", "5", "6"));
+        
+        synchronization = spy(synchronization);
+        synchronization.setPartition(partition);
+        synchronization.synchronize();
+        
+        for(String itemId : Set.of("1", "2", "3", "4", "5", "6"))
+            verify(synchronization, times(partition.contains(itemId) ? 1 : 0)).synchronizeItem(itemId);
+    }
+    
     private ItemProcessor getItemProcessor() throws Exception
     {
         Field field = Synchronization.class.getDeclaredField("itemProcessor");
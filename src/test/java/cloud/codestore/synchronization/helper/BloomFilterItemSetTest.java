@@ -0,0 +1,82 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.ItemSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The bloom filter item set")
+class BloomFilterItemSetTest
+{
+    @Mock
+    private ItemSet<Object> itemSet;
+    @Mock
+    private Object item;
+    
+    private BloomFilterItemSet<Object> bloomFilterItemSet;
+    
+    @BeforeEach
+    void setUp()
+    {
+        bloomFilterItemSet = new BloomFilterItemSet<>(itemSet, List.of("1", "2", "3").iterator(), 3);
+    }
+    
+    @Test
+    @DisplayName("answers definite negatives without calling the underlying set")
+    void definiteNegative()
+    {
+        assertFalse(bloomFilterItemSet.contains("4"));
+        verify(itemSet, never()).contains(anyString());
+    }
+    
+    @Test
+    @DisplayName("confirms possible positives with the underlying set")
+    void possiblePositive()
+    {
+        when(itemSet.contains("2")).thenReturn(true);
+        assertTrue(bloomFilterItemSet.contains("2"));
+        verify(itemSet).contains("2");
+    }
+    
+    @Test
+    @DisplayName("contains added items")
+    void addItem() throws Exception
+    {
+        when(itemSet.contains("4")).thenReturn(true);
+        bloomFilterItemSet.addItem("4", item);
+        
+        assertTrue(bloomFilterItemSet.contains("4"));
+        verify(itemSet).addItem("4", item);
+    }
+    
+    @Test
+    @DisplayName("contains items which were added to the underlying set after it was rebuilt")
+    void rebuild()
+    {
+        when(itemSet.getItemIds()).thenReturn(Set.of("1", "2", "3", "4"));
+        when(itemSet.contains("4")).thenReturn(true);
+        
+        bloomFilterItemSet.rebuild();
+        
+        assertTrue(bloomFilterItemSet.contains("4"));
+    }
+    
+    @Test
+    @DisplayName("reads the item IDs of the underlying set once")
+    void readItemIdsOnce()
+    {
+        when(itemSet.getItemIds()).thenReturn(Set.of("1"));
+        new BloomFilterItemSet<>(itemSet);
+        verify(itemSet, times(1)).getItemIds();
+    }
+}
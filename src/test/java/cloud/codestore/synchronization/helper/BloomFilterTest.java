@@ -0,0 +1,59 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The bloom filter")
+class BloomFilterTest
+{
+    @Test
+    @DisplayName("contains all added values")
+    void noFalseNegatives()
+    {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for(int i = 0; i < 10_000; i++)
+            bloomFilter.add("item" + i);
+        
+        for(int i = 0; i < 10_000; i++)
+            assertTrue(bloomFilter.mightContain("item" + i));
+    }
+    
+    @Test
+    @DisplayName("rarely contains values which were not added")
+    void falsePositives()
+    {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for(int i = 0; i < 10_000; i++)
+            bloomFilter.add("item" + i);
+        
+        int falsePositives = 0;
+        for(int i = 0; i < 10_000; i++)
+            if(bloomFilter.mightContain("other" + i))
+                falsePositives++;
+        
+        assertTrue(falsePositives < 300);
+    }
+    
+    @Test
+    @DisplayName("can be restored")
+    void restore() throws IOException
+    {
+        BloomFilter bloomFilter = new BloomFilter(100, 0.01);
+        bloomFilter.add("123");
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bloomFilter.writeTo(new DataOutputStream(bytes));
+        BloomFilter restoredFilter = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        
+        assertTrue(restoredFilter.mightContain("123"));
+        assertFalse(restoredFilter.mightContain("456"));
+    }
+}
@@ -0,0 +1,105 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The bucketed status")
+class BucketedMutableItemStatusTest
+{
+    private static final int BUCKET_COUNT = 4;
+    
+    private Path directory;
+    private BucketedMutableItemStatus status;
+    
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("status");
+        status = BucketedMutableItemStatus.open(directory, BUCKET_COUNT);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        try(Stream<Path> files = Files.walk(directory))
+        {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+    
+    @Test
+    @DisplayName("is empty if new")
+    void empty()
+    {
+        assertTrue(status.getItemIds().isEmpty());
+        assertFalse(status.contains("123"));
+    }
+    
+    @Test
+    @DisplayName("throws UnsupportedOperationException when trying to add item without etag")
+    void putItemWithoutEtag()
+    {
+        assertThrows(UnsupportedOperationException.class, () -> status.put("123"));
+    }
+    
+    @Test
+    @DisplayName("can be restored from the bucket files")
+    void restore() throws IOException
+    {
+        for(int i = 0; i < 100; i++)
+            status.put("item" + i, "etag" + i);
+        
+        status.delete("item42");
+        status.save();
+        
+        BucketedMutableItemStatus restoredStatus = BucketedMutableItemStatus.open(directory, BUCKET_COUNT);
+        assertEquals(99, restoredStatus.getItemIds().size());
+        assertEquals("etag7", restoredStatus.getEtag("item7"));
+        assertFalse(restoredStatus.contains("item42"));
+    }
+    
+    @Test
+    @DisplayName("only rewrites modified buckets")
+    void rewriteModifiedBuckets() throws IOException
+    {
+        for(int i = 0; i < 100; i++)
+            status.put("item" + i, "etag" + i);
+        
+        status.save();
+        
+        FileTime oldTime = FileTime.fromMillis(0);
+        for(Path file : bucketFiles())
+            Files.setLastModifiedTime(file, oldTime);
+        
+        BucketedMutableItemStatus restoredStatus = BucketedMutableItemStatus.open(directory, BUCKET_COUNT);
+        restoredStatus.put("item1", "newEtag");
+        restoredStatus.save();
+        
+        long rewrittenFiles = 0;
+        for(Path file : bucketFiles())
+            if(!Files.getLastModifiedTime(file).equals(oldTime))
+                rewrittenFiles++;
+        
+        assertEquals(1, rewrittenFiles);
+        assertEquals("newEtag", BucketedMutableItemStatus.open(directory, BUCKET_COUNT).getEtag("item1"));
+    }
+    
+    private List<Path> bucketFiles() throws IOException
+    {
+        try(Stream<Path> files = Files.list(directory))
+        {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
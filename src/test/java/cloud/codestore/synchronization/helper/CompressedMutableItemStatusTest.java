@@ -0,0 +1,174 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The compressed status")
+class CompressedMutableItemStatusTest
+{
+    private Path file;
+    
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        file = Files.createTempFile("status", "bin");
+        Files.delete(file);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+    
+    @Test
+    @DisplayName("is empty if the file does not exist")
+    void empty() throws IOException
+    {
+        CompressedMutableItemStatus status = CompressedMutableItemStatus.load(file);
+        assertTrue(status.getItemIds().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("can be restored from file")
+    void restoreFromFile() throws IOException
+    {
+        CompressedMutableItemStatus status = CompressedMutableItemStatus.load(file);
+        for(int i = 0; i < 10_000; i++)
+            status.put("/home/user/documents/project/file" + i + ".txt", Integer.toHexString(i * 4099 + 0x1000));
+        
+        status.put("/home/user/text-etag", "W/\"etag\"");
+        status.put("/home/user/null-etag", null);
+        status.put("/home/user/😀", "0a");
+        status.put("/home/user/😁", "0b");
+        status.save();
+        
+        CompressedMutableItemStatus restoredStatus = CompressedMutableItemStatus.load(file);
+        assertEquals(10_004, restoredStatus.getItemIds().size());
+        assertEquals(Integer.toHexString(42 * 4099 + 0x1000),
+                     restoredStatus.getEtag("/home/user/documents/project/file42.txt"));
+        assertEquals("W/\"etag\"", restoredStatus.getEtag("/home/user/text-etag"));
+        assertTrue(restoredStatus.contains("/home/user/null-etag"));
+        assertNull(restoredStatus.getEtag("/home/user/null-etag"));
+        assertEquals("0a", restoredStatus.getEtag("/home/user/😀"));
+        assertEquals("0b", restoredStatus.getEtag("/home/user/😁"));
+    }
+    
+    @Test
+    @DisplayName("is much smaller than the corresponding CSV file")
+    void compression() throws IOException
+    {
+        CompressedMutableItemStatus status = CompressedMutableItemStatus.load(file);
+        long csvSize = 0;
+        for(int i = 0; i < 10_000; i++)
+        {
+            String itemId = "/home/user/documents/project/file" + i + ".txt";
+            String etag = Integer.toHexString(i * 4099 + 0x1000);
+            status.put(itemId, etag);
+            csvSize += itemId.length() + etag.length() + 2;
+        }
+        
+        status.save();
+        assertTrue(Files.size(file) < csvSize / 4);
+    }
+    
+    @Test
+    @DisplayName("returns an empty status if the file is corrupt and loaded silently")
+    void corruptFile() throws IOException
+    {
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> CompressedMutableItemStatus.load(file));
+        assertTrue(CompressedMutableItemStatus.loadSilently(file).getItemIds().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("can be restored from a file with many blocks")
+    void manyBlocks() throws IOException
+    {
+        CompressedMutableItemStatus status = CompressedMutableItemStatus.load(file);
+        for(int i = 0; i < 100_000; i++)
+            status.put("item" + i, Integer.toHexString(i + 0x100));
+        
+        status.save();
+        
+        CompressedMutableItemStatus restoredStatus = CompressedMutableItemStatus.load(file);
+        assertEquals(100_000, restoredStatus.getItemIds().size());
+        assertEquals(Integer.toHexString(99_999 + 0x100), restoredStatus.getEtag("item99999"));
+    }
+    
+    @Test
+    @DisplayName("does not restore items which were deleted while it was saved")
+    void deleteWhileSaving() throws Exception
+    {
+        CompressedMutableItemStatus status = CompressedMutableItemStatus.load(file);
+        for(int i = 0; i < 100_000; i++)
+            status.put("item" + i, "etag" + i);
+        
+        Thread deleter = new Thread(() -> {
+            for(int i = 0; i < 100_000; i++)
+                status.delete("item" + i);
+        });
+        deleter.start();
+        status.save();
+        deleter.join();
+        
+        CompressedMutableItemStatus restoredStatus = CompressedMutableItemStatus.load(file);
+        for(String itemId : restoredStatus.getItemIds())
+            assertNotNull(restoredStatus.getEtag(itemId));
+    }
+    
+    @Test
+    @DisplayName("rejects invalid block lengths")
+    void invalidBlockLengths() throws IOException
+    {
+        writeBlockHeader(1, -1, 10);
+        assertThrows(IOException.class, () -> CompressedMutableItemStatus.load(file));
+        assertTrue(CompressedMutableItemStatus.loadSilently(file).getItemIds().isEmpty());
+        
+        writeBlockHeader(1, 10, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> CompressedMutableItemStatus.load(file));
+        
+        writeBlockHeader(1, Integer.MAX_VALUE, 10);
+        assertThrows(IOException.class, () -> CompressedMutableItemStatus.load(file));
+        
+        writeBlockHeader(-1, 10, 10);
+        assertThrows(IOException.class, () -> CompressedMutableItemStatus.load(file));
+    }
+    
+    @Test
+    @DisplayName("rejects a truncated file")
+    void truncatedFile() throws IOException
+    {
+        CompressedMutableItemStatus status = CompressedMutableItemStatus.load(file);
+        for(int i = 0; i < 1000; i++)
+            status.put("item" + i, "etag" + i);
+        
+        status.save();
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length / 2));
+        
+        assertThrows(IOException.class, () -> CompressedMutableItemStatus.load(file));
+        assertTrue(CompressedMutableItemStatus.loadSilently(file).getItemIds().isEmpty());
+    }
+    
+    private void writeBlockHeader(int entryCount, int uncompressedLength, int compressedLength) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0x53544154);
+        output.writeByte(1);
+        output.writeInt(1);
+        output.writeInt(entryCount);
+        output.writeInt(uncompressedLength);
+        output.writeInt(compressedLength);
+        Files.write(file, bytes.toByteArray());
+    }
+}
@@ -0,0 +1,73 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("A durably written file")
+class DurableFilesTest
+{
+    private Path directory;
+    private Path file;
+    
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("durable");
+        file = directory.resolve("status.csv");
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        try(Stream<Path> files = Files.list(directory))
+        {
+            for(Path path : (Iterable<Path>) files::iterator)
+                Files.delete(path);
+        }
+        
+        Files.delete(directory);
+    }
+    
+    @Test
+    @DisplayName("replaces the content of the file")
+    void replaceContent() throws IOException
+    {
+        Files.writeString(file, "old");
+        DurableFiles.write(file, output -> output.write("new".getBytes(StandardCharsets.UTF_8)));
+        
+        assertEquals("new", Files.readString(file));
+        assertTemporaryFileRemoved();
+    }
+    
+    @Test
+    @DisplayName("remains unchanged if the content could not be written")
+    void failedWrite() throws IOException
+    {
+        Files.writeString(file, "old");
+        assertThrows(IOException.class, () -> DurableFiles.write(file, output -> {
+            output.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException();
+        }));
+        
+        assertEquals("old", Files.readString(file));
+        assertTemporaryFileRemoved();
+    }
+    
+    private void assertTemporaryFileRemoved() throws IOException
+    {
+        try(Stream<Path> files = Files.list(directory))
+        {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The file etag cache")
+class FileEtagCacheTest
+{
+    private static final FileTime LAST_MODIFIED = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+    
+    private Path directory;
+    private Path cacheFile;
+    private Path file;
+    
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("etags");
+        cacheFile = directory.resolve("etags.bin");
+        file = directory.resolve("file.txt");
+        write(file, "content");
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        Files.deleteIfExists(cacheFile);
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+    
+    @Test
+    @DisplayName("returns the hash of the file content")
+    void etagOfContent() throws IOException
+    {
+        FileEtagCache cache = FileEtagCache.load(cacheFile);
+        String etag = cache.getEtag(file);
+        
+        assertEquals(32, etag.length());
+        assertEquals(FileEtagCache.calculateEtag(file), etag);
+    }
+    
+    @Test
+    @DisplayName("does not hash an unchanged file again")
+    void cacheUnchangedFile() throws IOException
+    {
+        FileEtagCache cache = FileEtagCache.load(cacheFile);
+        String etag = cache.getEtag(file);
+        
+        write(file, "CONTENT");
+        assertEquals(etag, cache.getEtag(file));
+    }
+    
+    @Test
+    @DisplayName("hashes a changed file again")
+    void hashChangedFile() throws IOException
+    {
+        FileEtagCache cache = FileEtagCache.load(cacheFile);
+        String etag = cache.getEtag(file);
+        
+        Files.writeString(file, "changed content");
+        assertNotEquals(etag, cache.getEtag(file));
+    }
+    
+    @Test
+    @DisplayName("does not cache a recently modified file")
+    void doNotCacheRecentlyModifiedFile() throws IOException
+    {
+        FileEtagCache cache = FileEtagCache.load(cacheFile);
+        Files.writeString(file, "content");
+        String etag = cache.getEtag(file);
+        
+        Files.writeString(file, "CONTENT");
+        Files.setLastModifiedTime(file, Files.getLastModifiedTime(file));
+        assertNotEquals(etag, cache.getEtag(file));
+    }
+    
+    @Test
+    @DisplayName("can be restored from file")
+    void restoreFromFile() throws IOException
+    {
+        FileEtagCache cache = FileEtagCache.load(cacheFile);
+        String etag = cache.getEtag(file);
+        cache.save();
+        
+        write(file, "CONTENT");
+        assertEquals(etag, FileEtagCache.load(cacheFile).getEtag(file));
+    }
+    
+    @Test
+    @DisplayName("hashes large files in chunks")
+    void hashLargeFile() throws IOException
+    {
+        byte[] data = new byte[20 * 1024 * 1024];
+        new Random(42).nextBytes(data);
+        Files.write(file, data);
+        
+        String etag = FileEtagCache.calculateEtag(file);
+        assertEquals(etag, FileEtagCache.calculateEtag(file));
+        
+        data[data.length - 1]++;
+        Files.write(file, data);
+        assertNotEquals(etag, FileEtagCache.calculateEtag(file));
+    }
+    
+    /**
+     * Writes the given content and sets a modification time in the past, so the file is not modified recently.
+     */
+    private static void write(Path file, String content) throws IOException
+    {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, LAST_MODIFIED);
+    }
+}
@@ -0,0 +1,117 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.Status;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The group commit status")
+class GroupCommitStatusTest
+{
+    @Mock
+    private Status status;
+    
+    @Test
+    @DisplayName("delegates all calls to the underlying status")
+    void delegate() throws IOException
+    {
+        GroupCommitStatus groupCommitStatus = new GroupCommitStatus(status);
+        groupCommitStatus.put("123", "etag");
+        groupCommitStatus.delete("456");
+        groupCommitStatus.save();
+        
+        verify(status).put("123", "etag");
+        verify(status).delete("456");
+        verify(status).save();
+    }
+    
+    @Test
+    @DisplayName("combines concurrent saves")
+    void combineSaves() throws Exception
+    {
+        AtomicInteger saves = new AtomicInteger();
+        doAnswer(invocation -> {
+            saves.incrementAndGet();
+            Thread.sleep(100);
+            return null;
+        }).when(status).save();
+        
+        GroupCommitStatus groupCommitStatus = new GroupCommitStatus(status, Duration.ofMillis(50));
+        ExecutorService executorService = Executors.newFixedThreadPool(20);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < 20; i++)
+            {
+                futures.add(executorService.submit(() -> {
+                    groupCommitStatus.save();
+                    return null;
+                }));
+            }
+            
+            for(Future<?> future : futures)
+                future.get();
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+        
+        assertTrue(saves.get() < 20);
+        assertTrue(saves.get() >= 1);
+    }
+    
+    @Test
+    @DisplayName("throws an exception if the status could not be saved")
+    void failedSave() throws IOException
+    {
+        doThrow(new IOException()).when(status).save();
+        GroupCommitStatus groupCommitStatus = new GroupCommitStatus(status);
+        
+        assertThrows(IOException.class, groupCommitStatus::save);
+    }
+    
+    @Test
+    @DisplayName("throws an exception to all grouped callers if the underlying status throws a runtime exception")
+    void failedSaveWithRuntimeException() throws Exception
+    {
+        doThrow(new ConcurrentModificationException()).when(status).save();
+        GroupCommitStatus groupCommitStatus = new GroupCommitStatus(status, Duration.ofMillis(50));
+        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < 10; i++)
+            {
+                futures.add(executorService.submit(() -> {
+                    groupCommitStatus.save();
+                    return null;
+                }));
+            }
+            
+            for(Future<?> future : futures)
+                assertThrows(ExecutionException.class, future::get);
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+}
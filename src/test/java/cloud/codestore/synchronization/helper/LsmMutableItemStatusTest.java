@@ -0,0 +1,190 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The LSM status")
+class LsmMutableItemStatusTest
+{
+    private Path directory;
+    private LsmMutableItemStatus status;
+    
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("status");
+        status = LsmMutableItemStatus.open(directory, 10, 3);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        status.close();
+        try(Stream<Path> files = Files.walk(directory))
+        {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+    
+    @Test
+    @DisplayName("is empty if new")
+    void empty()
+    {
+        assertTrue(status.getItemIds().isEmpty());
+        assertFalse(status.contains("123"));
+        assertNull(status.getEtag("123"));
+    }
+    
+    @Test
+    @DisplayName("throws UnsupportedOperationException when trying to add item without etag")
+    void putItemWithoutEtag()
+    {
+        assertThrows(UnsupportedOperationException.class, () -> status.put("123"));
+    }
+    
+    @Test
+    @DisplayName("returns the newest etag of an item which was written into several segments")
+    void newestEtag()
+    {
+        for(int i = 0; i < 25; i++)
+            status.put("item" + i, "etag" + i);
+        
+        status.put("item3", "newEtag");
+        status.delete("item4");
+        for(int i = 25; i < 50; i++)
+            status.put("item" + i, "etag" + i);
+        
+        assertEquals("newEtag", status.getEtag("item3"));
+        assertEquals("etag30", status.getEtag("item30"));
+        assertFalse(status.contains("item4"));
+        assertNull(status.getEtag("item4"));
+        assertTrue(status.contains("item0"));
+    }
+    
+    @Test
+    @DisplayName("iterates the item IDs in their sorted order")
+    void sortedItemIds()
+    {
+        List<String> expectedItemIds = new ArrayList<>();
+        for(int i = 0; i < 35; i++)
+        {
+            String itemId = String.format("item%03d", 34 - i);
+            status.put(itemId, "etag");
+            expectedItemIds.add(0, itemId);
+        }
+        
+        status.delete("item010");
+        expectedItemIds.remove("item010");
+        
+        assertEquals(expectedItemIds, new ArrayList<>(status.getItemIds()));
+        assertEquals(34, status.getItemIds().size());
+    }
+    
+    @Test
+    @DisplayName("can be restored after saving and compaction")
+    void restore() throws IOException
+    {
+        for(int i = 0; i < 100; i++)
+            status.put("item" + i, i % 2 == 0 ? "etag" + i : null);
+        
+        status.delete("item42");
+        status.save();
+        status.close();
+        
+        status = LsmMutableItemStatus.open(directory, 10, 3);
+        assertEquals(99, status.getItemIds().size());
+        assertEquals("etag8", status.getEtag("item8"));
+        assertTrue(status.contains("item9"));
+        assertNull(status.getEtag("item9"));
+        assertFalse(status.contains("item42"));
+        
+        try(Stream<Path> files = Files.list(directory))
+        {
+            assertTrue(files.count() < 10);
+        }
+    }
+    
+    @Test
+    @DisplayName("keeps compacted segments until the iterations which read them are finished")
+    void compactionDuringIteration() throws IOException
+    {
+        for(int i = 0; i < 20; i++)
+            status.put(String.format("item%02d", i), "etag");
+        
+        Iterator<String> iterator = status.getItemIds().iterator();
+        assertEquals("item00", iterator.next());
+        try(Stream<String> stream = status.streamItemIds())
+        {
+            assertEquals("item00", stream.findFirst().orElseThrow());
+        }
+        
+        for(int i = 20; i < 30; i++)
+            status.put(String.format("item%02d", i), "etag");
+        
+        status.close();
+        assertTrue(Files.exists(directory.resolve("segment-1-1.dat")));
+        assertTrue(Files.exists(directory.resolve("segment-1-3.dat")));
+        
+        int count = 1;
+        for(; iterator.hasNext(); iterator.next())
+            count++;
+        
+        assertEquals(20, count);
+        assertFalse(Files.exists(directory.resolve("segment-1-1.dat")));
+        assertFalse(Files.exists(directory.resolve("segment-2-2.dat")));
+    }
+    
+    @Test
+    @DisplayName("releases the segments if an iteration is closed early")
+    void closeIteration() throws IOException
+    {
+        for(int i = 0; i < 20; i++)
+            status.put(String.format("item%02d", i), "etag");
+        
+        Iterator<String> iterator = status.getItemIds().iterator();
+        iterator.next();
+        ((Closeable) iterator).close();
+        
+        for(int i = 20; i < 30; i++)
+            status.put(String.format("item%02d", i), "etag");
+        
+        status.close();
+        assertFalse(Files.exists(directory.resolve("segment-1-1.dat")));
+        assertTrue(Files.exists(directory.resolve("segment-1-3.dat")));
+    }
+    
+    @Test
+    @DisplayName("does not rewrite large segments on every compaction")
+    void tieredCompaction() throws IOException
+    {
+        for(int i = 0; i < 30; i++)
+            status.put("item" + i, "etag" + i);
+        
+        status.close();
+        status = LsmMutableItemStatus.open(directory, 10, 3);
+        for(int i = 30; i < 50; i++)
+            status.put("item" + i, "etag" + i);
+        
+        status.close();
+        assertTrue(Files.exists(directory.resolve("segment-1-3.dat")));
+        assertTrue(Files.exists(directory.resolve("segment-4-5.dat")));
+        
+        status = LsmMutableItemStatus.open(directory, 10, 3);
+        assertEquals(50, status.getItemIds().size());
+        assertEquals("etag7", status.getEtag("item7"));
+        assertEquals("etag42", status.getEtag("item42"));
+    }
+}
@@ -0,0 +1,50 @@
+package cloud.codestore.synchronization.helper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The MurmurHash3")
+class MurmurHash3Test
+{
+    @Test
+    @DisplayName("calculates the reference hashes")
+    void referenceHashes()
+    {
+        assertEquals("00000000000000000000000000000000", hex(MurmurHash3.hash(new byte[0])));
+        assertEquals("6c1b07bc7bbc4be347939ac4a93c437a",
+                     hex(MurmurHash3.hash("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8))));
+    }
+    
+    @Test
+    @DisplayName("calculates the same hash if the data is passed in pieces")
+    void incrementalUpdate()
+    {
+        byte[] data = new byte[1000];
+        new Random(42).nextBytes(data);
+        
+        MurmurHash3 hash = new MurmurHash3();
+        int position = 0;
+        for(int length : new int[] {1, 7, 16, 100, 3, 500, 373})
+        {
+            hash.update(ByteBuffer.wrap(data, position, length));
+            position += length;
+        }
+        
+        assertArrayEquals(MurmurHash3.hash(data), hash.digest());
+    }
+    
+    private static String hex(byte[] bytes)
+    {
+        StringBuilder builder = new StringBuilder();
+        for(byte value : bytes)
+            builder.append(String.format("%02x", value));
+        
+        return builder.toString();
+    }
+}
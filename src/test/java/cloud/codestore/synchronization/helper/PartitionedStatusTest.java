@@ -0,0 +1,89 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.ItemPartition;
+import cloud.codestore.synchronization.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("The partitioned status")
+class PartitionedStatusTest
+{
+    private static final int PARTITION_COUNT = 3;
+    
+    private List<Map<String, String>> savedPartitions;
+    private PartitionedStatus status;
+    
+    @BeforeEach
+    void setUp()
+    {
+        savedPartitions = new ArrayList<>();
+        List<Status> partitions = new ArrayList<>();
+        for(int i = 0; i < PARTITION_COUNT; i++)
+        {
+            int index = i;
+            savedPartitions.add(null);
+            partitions.add(new AbstractMutableItemStatus(new HashMap<>()) {
+                @Override
+                public void save(Map<String, String> itemIdToEtagMap)
+                {
+                    savedPartitions.set(index, new HashMap<>(itemIdToEtagMap));
+                }
+            });
+        }
+        
+        status = new PartitionedStatus(partitions);
+        status.put("123", "abc");
+        status.put("456", "def");
+        status.put("789", "ghi");
+    }
+    
+    @Test
+    @DisplayName("stores every item in the partition it belongs to")
+    void storeInPartition()
+    {
+        for(String itemId : Set.of("123", "456", "789"))
+        {
+            int index = ItemPartition.indexOf(itemId, PARTITION_COUNT);
+            for(int i = 0; i < PARTITION_COUNT; i++)
+                assertEquals(i == index, status.getPartition(i).contains(itemId));
+        }
+    }
+    
+    @Test
+    @DisplayName("returns the merged content of all partitions")
+    void mergedContent()
+    {
+        assertEquals(Set.of("123", "456", "789"), status.getItemIds());
+        assertEquals("abc", status.getEtag("123"));
+        assertEquals("def", status.getEtag("456"));
+        assertEquals("ghi", status.getEtag("789"));
+        
+        status.delete("456");
+        assertFalse(status.contains("456"));
+    }
+    
+    @Test
+    @DisplayName("saves every partition independently")
+    void saveEveryPartition() throws IOException
+    {
+        status.save();
+        
+        Map<String, String> merged = new HashMap<>();
+        for(Map<String, String> partition : savedPartitions)
+        {
+            assertNotNull(partition);
+            merged.putAll(partition);
+        }
+        assertEquals(Map.of("123", "abc", "456", "def", "789", "ghi"), merged);
+    }
+}
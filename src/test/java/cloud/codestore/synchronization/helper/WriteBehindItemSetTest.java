@@ -0,0 +1,182 @@
+package cloud.codestore.synchronization.helper;
+
+import cloud.codestore.synchronization.FlushException;
+import cloud.codestore.synchronization.ItemSet;
+import cloud.codestore.synchronization.MutableItemSynchronization;
+import cloud.codestore.synchronization.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The write-behind item set")
+class WriteBehindItemSetTest
+{
+    @Mock
+    private ItemSet<Object> itemSet;
+    @Mock
+    private Object item;
+    
+    private WriteBehindItemSet<Object> writeBehindItemSet;
+    
+    @BeforeEach
+    void setUp()
+    {
+        writeBehindItemSet = new WriteBehindItemSet<>(itemSet, 10, 4);
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        writeBehindItemSet.close();
+    }
+    
+    @Test
+    @DisplayName("returns before the change is written")
+    void writeBehind() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await();
+            return null;
+        }).when(itemSet).addItem("1", item);
+        
+        writeBehindItemSet.addItem("1", item);
+        
+        assertTrue(writeBehindItemSet.contains("1"));
+        assertSame(item, writeBehindItemSet.getItem("1"));
+        latch.countDown();
+        writeBehindItemSet.flush();
+        verify(itemSet).addItem("1", item);
+    }
+    
+    @Test
+    @DisplayName("writes the changes in their order")
+    void order() throws Exception
+    {
+        for(int i = 0; i < 20; i++)
+            writeBehindItemSet.updateItem(String.valueOf(i), item);
+        
+        writeBehindItemSet.delete("0");
+        writeBehindItemSet.flush();
+        
+        InOrder inOrder = inOrder(itemSet);
+        for(int i = 0; i < 20; i++)
+            inOrder.verify(itemSet).updateItem(String.valueOf(i), item);
+        
+        inOrder.verify(itemSet).delete("0");
+    }
+    
+    @Test
+    @DisplayName("reports changes which could not be written when flushed")
+    void failures() throws Exception
+    {
+        IOException exception = new IOException();
+        doThrow(exception).when(itemSet).addItem("1", item);
+        
+        writeBehindItemSet.addItem("1", item);
+        writeBehindItemSet.addItem("2", item);
+        
+        FlushException flushException = assertThrows(FlushException.class, writeBehindItemSet::flush);
+        assertEquals(1, flushException.getFailures().size());
+        assertSame(exception, flushException.getFailures().get("1"));
+        assertDoesNotThrow(writeBehindItemSet::flush);
+    }
+    
+    @Test
+    @DisplayName("is flushed by the synchronization and the status of failed items is restored")
+    void flushedBySynchronization() throws Exception
+    {
+        ItemSet<Object> itemSetA = mock(ItemSet.class);
+        Status status = spy(new InMemoryStatus());
+        when(itemSetA.contains("1")).thenReturn(true);
+        when(itemSetA.getEtag("1")).thenReturn("etag");
+        when(itemSetA.getItem("1")).thenReturn(item);
+        when(itemSet.contains("1")).thenReturn(false);
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(200);
+            throw new IOException();
+        }).when(itemSet).addItem("1", item);
+        
+        new MutableItemSynchronization<>(itemSetA, writeBehindItemSet, status).synchronize("1");
+        
+        verify(itemSet).addItem("1", item);
+        InOrder inOrder = inOrder(status);
+        inOrder.verify(status).put("1", "etag");
+        inOrder.verify(status).delete("1");
+        assertFalse(status.contains("1"));
+    }
+    
+    @Test
+    @DisplayName("does not cause failed deletions to be reverted by the next synchronization")
+    void failedDeletion() throws Exception
+    {
+        ItemSet<Object> itemSetA = mock(ItemSet.class);
+        Status status = new InMemoryStatus();
+        status.put("1", "etag");
+        when(itemSetA.contains("1")).thenReturn(false);
+        when(itemSet.contains("1")).thenReturn(true);
+        doThrow(new IOException()).when(itemSet).delete("1");
+        
+        MutableItemSynchronization<Object> synchronization = new MutableItemSynchronization<>(itemSetA, writeBehindItemSet, status);
+        synchronization.synchronize("1");
+        assertEquals("etag", status.getEtag("1"));
+        synchronization.synchronize("1");
+        
+        verify(itemSet, times(2)).delete("1");
+        verify(itemSetA, never()).addItem(any(), any());
+        assertEquals("etag", status.getEtag("1"));
+    }
+    
+    @Test
+    @DisplayName("includes buffered changes in the item IDs")
+    void itemIds() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await();
+            return null;
+        }).when(itemSet).addItem("3", item);
+        doAnswer(invocation -> {
+            latch.await();
+            return null;
+        }).when(itemSet).delete("1");
+        when(itemSet.getItemIds()).thenReturn(Set.of("1", "2"));
+        when(itemSet.contains("2")).thenReturn(true);
+        when(itemSet.contains("3")).thenReturn(false);
+        
+        writeBehindItemSet.addItem("3", item);
+        writeBehindItemSet.delete("1");
+        
+        assertEquals(Set.of("2", "3"), new HashSet<>(writeBehindItemSet.getItemIds()));
+        latch.countDown();
+        writeBehindItemSet.flush();
+    }
+    
+    private static class InMemoryStatus extends AbstractMutableItemStatus
+    {
+        InMemoryStatus()
+        {
+            super(new HashMap<>());
+        }
+        
+        @Override
+        public void save(Map<String, String> itemIdToEtagMap) {}
+    }
+}